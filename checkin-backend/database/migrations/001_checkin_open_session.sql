@@ -0,0 +1,21 @@
+-- 已部署数据库升级：每个用户每天每种类型只允许一条未签退记录（uk_checkin_open_session）
+-- 新建库直接使用 schema.sql，无需执行本脚本；已有库停机或暂停签到写入后执行一次
+
+USE checkin_db;
+
+-- 1. 清理重复的未签退记录：同一用户、类型、签到日期保留最后插入的一条，其余逻辑删除
+UPDATE checkin_record r
+JOIN (
+    SELECT user_id, type, DATE(check_in_time) AS check_in_day, MAX(id) AS keep_id
+    FROM checkin_record
+    WHERE status = 'checked_in' AND deleted = 0
+    GROUP BY user_id, type, DATE(check_in_time)
+    HAVING COUNT(*) > 1
+) dup ON r.user_id = dup.user_id AND r.type = dup.type AND DATE(r.check_in_time) = dup.check_in_day
+SET r.deleted = 1, r.updated_at = NOW()
+WHERE r.status = 'checked_in' AND r.deleted = 0 AND r.id <> dup.keep_id;
+
+-- 2. 增加生成列和唯一索引（与 schema.sql 中的定义一致）
+ALTER TABLE checkin_record
+    ADD COLUMN `open_day` date GENERATED ALWAYS AS (CASE WHEN `status` = 'checked_in' AND `deleted` = 0 THEN CAST(`check_in_time` AS DATE) END) VIRTUAL COMMENT '未签退记录的签到日期，其余为NULL',
+    ADD UNIQUE KEY `uk_checkin_open_session` (`user_id`, `type`, `open_day`);
@@ -0,0 +1,9 @@
+-- 已部署数据库升级：project.updated_at 由数据库维护，直接改库和逻辑删除也会更新，项目现场索引按它增量同步
+
+USE checkin_db;
+
+ALTER TABLE project
+    MODIFY COLUMN `updated_at` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间（直接改库和逻辑删除同样会更新，项目现场索引据此增量同步）';
+
+-- 从未写入过更新时间的历史项目补齐，避免按更新时间比较时被漏掉
+UPDATE project SET updated_at = COALESCE(created_at, NOW()) WHERE updated_at IS NULL;
@@ -0,0 +1,7 @@
+-- 已部署数据库升级：待审批队列按 (check_in_time, id) 游标分页，索引补齐排序列，避免大结果集 filesort
+
+USE checkin_db;
+
+ALTER TABLE checkin_record
+    DROP INDEX `idx_checkin_approval_state`,
+    ADD INDEX `idx_checkin_approval_state` (`approved`, `rejected`, `deleted`, `check_in_time`, `id`);
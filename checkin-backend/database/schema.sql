@@ -53,13 +53,16 @@ CREATE TABLE `project` (
   `project_name` varchar(255) DEFAULT NULL COMMENT '项目名称',
   `project_code` varchar(255) DEFAULT NULL COMMENT '项目编码',
   `location` varchar(255) DEFAULT NULL COMMENT '位置',
+  `latitude` double DEFAULT NULL COMMENT '项目现场纬度',
+  `longitude` double DEFAULT NULL COMMENT '项目现场经度',
+  `radius` int DEFAULT NULL COMMENT '签到范围半径（米）',
   `description` varchar(255) DEFAULT NULL COMMENT '描述',
   `status` varchar(255) DEFAULT NULL COMMENT '状态：active-活跃，completed-已完成，suspended-已暂停',
   `start_date` datetime DEFAULT NULL COMMENT '开始日期',
   `end_date` datetime DEFAULT NULL COMMENT '结束日期',
   `manager_id` bigint DEFAULT NULL COMMENT '管理者ID',
   `created_at` datetime DEFAULT NULL COMMENT '创建时间',
-  `updated_at` datetime DEFAULT NULL COMMENT '更新时间',
+  `updated_at` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间（直接改库和逻辑删除同样会更新，项目现场索引据此增量同步）',
   `deleted` int DEFAULT '0' COMMENT '逻辑删除：0-未删除，1-已删除',
   PRIMARY KEY (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目表';
@@ -93,8 +96,33 @@ CREATE TABLE `checkin_record` (
   `created_at` datetime DEFAULT NULL COMMENT '创建时间',
   `updated_at` datetime DEFAULT NULL COMMENT '更新时间',
   `deleted` int DEFAULT '0' COMMENT '逻辑删除：0-未删除，1-已删除',
-  PRIMARY KEY (`id`)
+  `open_day` date GENERATED ALWAYS AS (CASE WHEN `status` = 'checked_in' AND `deleted` = 0 THEN CAST(`check_in_time` AS DATE) END) VIRTUAL COMMENT '未签退记录的签到日期，其余为NULL',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_checkin_open_session` (`user_id`, `type`, `open_day`),
+  KEY `idx_checkin_user_type_time` (`user_id`, `type`, `check_in_time`),
+  KEY `idx_checkin_approval_state` (`approved`, `rejected`, `deleted`, `check_in_time`, `id`),
+  KEY `idx_checkin_project_approved` (`project_id`, `approved`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='签到记录表';
 
+-- ----------------------------
+-- Table structure for attendance_daily_rollup
+-- ----------------------------
+DROP TABLE IF EXISTS `attendance_daily_rollup`;
+CREATE TABLE `attendance_daily_rollup` (
+  `id` bigint NOT NULL AUTO_INCREMENT COMMENT '汇总ID',
+  `user_id` bigint NOT NULL COMMENT '用户ID',
+  `user_name` varchar(255) DEFAULT NULL COMMENT '用户名',
+  `project_id` bigint NOT NULL DEFAULT '0' COMMENT '项目ID：0-未关联项目',
+  `type` varchar(32) NOT NULL DEFAULT '' COMMENT '类型：construction-施工，travel-差旅，stop-停工',
+  `work_date` date NOT NULL COMMENT '签到日期',
+  `work_hours` double NOT NULL DEFAULT '0' COMMENT '工时合计',
+  `record_count` int NOT NULL DEFAULT '0' COMMENT '记录数',
+  `updated_at` datetime DEFAULT NULL COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_rollup_user_project_type_date` (`user_id`, `project_id`, `type`, `work_date`),
+  KEY `idx_rollup_date` (`work_date`),
+  KEY `idx_rollup_project_date` (`project_id`, `work_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='每日工时汇总表（已审批且已签退的记录）';
+
 -- 重新启用外键约束检查
 SET FOREIGN_KEY_CHECKS = 1;
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.checkin.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 2000 个并发客户端轮询 /checkin/status 的吞吐量与延迟分布（SampleTime 模式给出 p99）。
+ * 压测对象是已启动的后端实例，分别以 --spring.threads.virtual.enabled=true/false 启动后各运行一次进行对比
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(2000)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(value = 1, jvmArgsAppend = {"-Xss256k", "-Dhttp.maxConnections=2500"})
+public class StatusPollingBenchmark {
+
+    @Param("http://localhost:7778/api")
+    public String baseUrl;
+
+    @Param("admin")
+    public String username;
+
+    @Param("123456")
+    public String password;
+
+    private URL statusUrl;
+
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/auth/login").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String body = objectMapper.createObjectNode()
+                .put("username", username)
+                .put("password", password)
+                .toString();
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        JsonNode response;
+        try (InputStream in = connection.getInputStream()) {
+            response = objectMapper.readTree(in);
+        }
+        JsonNode token = response.path("data").path("token");
+        if (token.isMissingNode() || token.isNull()) {
+            throw new IllegalStateException("登录失败: " + response.path("message").asText());
+        }
+
+        statusUrl = new URL(baseUrl + "/checkin/status");
+        authorization = "Bearer " + token.asText();
+    }
+
+    @Benchmark
+    public int pollStatus() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) statusUrl.openConnection();
+        connection.setRequestProperty("Authorization", authorization);
+        int status = connection.getResponseCode();
+        // 读完响应体，连接才能回到 keep-alive 池中复用
+        byte[] buffer = new byte[4096];
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                while (in.read(buffer) != -1) {
+                    // 丢弃
+                }
+            }
+        }
+        if (status != 200) {
+            throw new IllegalStateException("HTTP " + status);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,173 @@
+package com.checkin.service;
+
+import com.checkin.entity.AttendanceDailyRollup;
+import com.checkin.entity.CheckInRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统计聚合基准：合成 1万 ~ 100万 行数据，测量工时汇总的耗时。
+ * legacyAggregateRollups 保留按用户名装箱累加的旧实现作为对照，分配量用 -prof gc 查看：
+ * mvn -Pbenchmark compile exec:exec -Djmh.args="AttendanceAggregationBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AttendanceAggregationBenchmark {
+
+    private static final String[] TYPES = {"construction", "travel", "stop"};
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private List<AttendanceDailyRollup> rollups;
+
+    private List<CheckInRecord> records;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate firstDay = LocalDate.of(2023, 1, 1);
+        LocalDateTime firstTime = firstDay.atTime(7, 0);
+
+        rollups = new ArrayList<>(rows);
+        records = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long userId = random.nextInt(500) + 1;
+            String type = TYPES[random.nextInt(TYPES.length)];
+            int dayOffset = random.nextInt(365);
+
+            AttendanceDailyRollup rollup = new AttendanceDailyRollup();
+            rollup.setUserId(userId);
+            rollup.setUserName("user" + userId);
+            rollup.setProjectId((long) random.nextInt(20));
+            rollup.setType(type);
+            rollup.setWorkDate(firstDay.plusDays(dayOffset));
+            rollup.setWorkHours(random.nextInt(600) / 60.0);
+            rollup.setRecordCount(random.nextInt(3) + 1);
+            rollups.add(rollup);
+
+            CheckInRecord record = new CheckInRecord();
+            record.setId((long) i);
+            record.setUserId(userId);
+            record.setUserName("user" + userId);
+            record.setType(type);
+            record.setCheckInTime(firstTime.plusDays(dayOffset).plusMinutes(random.nextInt(120)));
+            record.setCheckOutTime(record.getCheckInTime().plusMinutes(random.nextInt(600)));
+            records.add(record);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> aggregateRollups() {
+        return AttendanceService.aggregateRollups(rollups, true);
+    }
+
+    @Benchmark
+    public Map<String, Object> aggregateRollupsSequential() {
+        return AttendanceAggregator.aggregate(rollups, true, Integer.MAX_VALUE).toStatistics();
+    }
+
+    @Benchmark
+    public Map<String, Object> legacyAggregateRollups() {
+        return legacyAggregate(rollups, true);
+    }
+
+    @Benchmark
+    public double sumRecordWorkHours() {
+        double total = 0;
+        for (CheckInRecord record : records) {
+            total += AttendanceService.calculateWorkHours(record.getCheckInTime(), record.getCheckOutTime());
+        }
+        return total;
+    }
+
+    /**
+     * 旧实现：按用户名分组，每行对 Map<String, Object> 中的 Double/Integer 拆箱再装箱
+     */
+    private static Map<String, Object> legacyAggregate(List<AttendanceDailyRollup> rollups, boolean includeDaily) {
+        int totalRecords = 0;
+        double totalHours = 0;
+        double constructionHours = 0;
+        double travelHours = 0;
+        double stopHours = 0;
+
+        Map<String, Map<String, Object>> userStats = new HashMap<>();
+        Map<String, Long> dailyRecords = new HashMap<>();
+
+        for (AttendanceDailyRollup rollup : rollups) {
+            double hours = rollup.getWorkHours();
+            int count = rollup.getRecordCount();
+            totalRecords += count;
+            totalHours += hours;
+
+            switch (rollup.getType()) {
+                case "construction":
+                    constructionHours += hours;
+                    break;
+                case "travel":
+                    travelHours += hours;
+                    break;
+                case "stop":
+                    stopHours += hours;
+                    break;
+            }
+
+            String userName = rollup.getUserName();
+            if (!userStats.containsKey(userName)) {
+                userStats.put(userName, new HashMap<>());
+                userStats.get(userName).put("totalHours", 0.0);
+                userStats.get(userName).put("constructionHours", 0.0);
+                userStats.get(userName).put("travelHours", 0.0);
+                userStats.get(userName).put("stopHours", 0.0);
+                userStats.get(userName).put("recordCount", 0);
+            }
+
+            Map<String, Object> userStat = userStats.get(userName);
+            userStat.put("totalHours", (Double) userStat.get("totalHours") + hours);
+            userStat.put("recordCount", (Integer) userStat.get("recordCount") + count);
+
+            switch (rollup.getType()) {
+                case "construction":
+                    userStat.put("constructionHours", (Double) userStat.get("constructionHours") + hours);
+                    break;
+                case "travel":
+                    userStat.put("travelHours", (Double) userStat.get("travelHours") + hours);
+                    break;
+                case "stop":
+                    userStat.put("stopHours", (Double) userStat.get("stopHours") + hours);
+                    break;
+            }
+
+            if (includeDaily) {
+                dailyRecords.merge(rollup.getWorkDate().format(DATE_FORMATTER), (long) count, Long::sum);
+            }
+        }
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalRecords", totalRecords);
+        statistics.put("totalHours", totalHours);
+        statistics.put("constructionHours", constructionHours);
+        statistics.put("travelHours", travelHours);
+        statistics.put("stopHours", stopHours);
+        statistics.put("userStats", userStats);
+        if (includeDaily) {
+            statistics.put("dailyRecords", dailyRecords);
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,46 @@
+package com.checkin.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导出逐行格式化基准：类型标签与日期格式化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportFormattingBenchmark {
+
+    private final String[][] types = {
+            {"construction", null},
+            {"travel", "departure"},
+            {"travel", "backToNing"},
+            {"stop", null}
+    };
+
+    private final LocalDateTime time = LocalDateTime.of(2023, 6, 15, 8, 30, 15);
+
+    private int index;
+
+    @Benchmark
+    public String typeLabel() {
+        String[] type = types[index++ & 3];
+        return AttendanceService.getTypeLabel(type[0], type[1]);
+    }
+
+    @Benchmark
+    public String formatDateTime() {
+        return time.format(AttendanceService.DATE_TIME_FORMATTER);
+    }
+
+    @Benchmark
+    public void formatWorkHours(Blackhole blackhole) {
+        blackhole.consume(String.format("%.2f", AttendanceService.calculateWorkHours(time, time.plusMinutes(487))));
+    }
+}
@@ -0,0 +1,82 @@
+package com.checkin.service;
+
+import com.checkin.entity.Project;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 项目现场网格索引查询基准：在约 100km x 100km 范围内随机分布现场，测量定位匹配和附近查询耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectSiteIndexBenchmark {
+
+    private static final double BASE_LATITUDE = 32.0;
+    private static final double BASE_LONGITUDE = 118.7;
+
+    @Param({"1000", "10000"})
+    private int sites;
+
+    private ProjectSiteIndex index;
+
+    private double[][] points;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        index = new ProjectSiteIndex();
+        setField("cellSizeDegrees", 0.01);
+        setField("defaultRadius", 500);
+
+        Random random = new Random(42);
+        for (int i = 0; i < sites; i++) {
+            Project project = new Project();
+            project.setId((long) i + 1);
+            project.setProjectName("project" + i);
+            project.setProjectCode("P" + i);
+            project.setStatus("active");
+            project.setLatitude(BASE_LATITUDE + random.nextDouble());
+            project.setLongitude(BASE_LONGITUDE + random.nextDouble());
+            project.setRadius(200 + random.nextInt(800));
+            index.upsert(project);
+        }
+
+        points = new double[1024][];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new double[]{BASE_LATITUDE + random.nextDouble(), BASE_LONGITUDE + random.nextDouble()};
+        }
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = ProjectSiteIndex.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(index, value);
+    }
+
+    private double[] nextPoint() {
+        next = (next + 1) & (points.length - 1);
+        return points[next];
+    }
+
+    @Benchmark
+    public ProjectSiteIndex.ProjectSite findContaining() {
+        double[] point = nextPoint();
+        return index.findContaining(point[0], point[1]);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> findNearby() {
+        double[] point = nextPoint();
+        return index.findNearby(point[0], point[1], 2000, 10);
+    }
+}
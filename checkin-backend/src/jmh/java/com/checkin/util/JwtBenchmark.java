@@ -0,0 +1,53 @@
+package com.checkin.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 签发与验签基准，对比完整验签与命中已验签缓存两种路径
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        jwtUtil = new JwtUtil();
+        setField("secret", "checkin-system-jwt-secret-key-2023");
+        setField("expiration", 86400000L);
+        setField("claimsCacheSize", 10000);
+        jwtUtil.init();
+        token = jwtUtil.generateToken("member", 3L, "队员");
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = JwtUtil.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(jwtUtil, value);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtil.generateToken("member", 3L, "队员");
+    }
+
+    @Benchmark
+    public String verifyUncached() {
+        return jwtUtil.getUsernameFromToken(token);
+    }
+
+    @Benchmark
+    public JwtUtil.TokenClaims verifyCached() {
+        return jwtUtil.parseToken(token);
+    }
+}
@@ -0,0 +1,47 @@
+package com.checkin.common;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 查询范围的变更水位：记录数 + 最后修改时间，用于生成列表接口的 ETag
+ */
+public class ChangeWatermark {
+
+    /**
+     * updated_at 只精确到秒，同一秒内的后续修改不会改变水位；最后修改距今不足该时长时不生成 ETag
+     */
+    private static final long SETTLE_MILLIS = 2000;
+
+    private Long rowCount;
+    private LocalDateTime lastUpdated;
+
+    public Long getRowCount() { return rowCount; }
+    public void setRowCount(Long rowCount) { this.rowCount = rowCount; }
+
+    public LocalDateTime getLastUpdated() { return lastUpdated; }
+    public void setLastUpdated(LocalDateTime lastUpdated) { this.lastUpdated = lastUpdated; }
+
+    /**
+     * 返回强 ETag，范围内刚发生过修改时返回 null
+     */
+    public String toETag() {
+        return toETag(null);
+    }
+
+    /**
+     * variant 区分同一范围的不同表示（如 fields= 选择的字段），不同 variant 的 ETag 不同
+     */
+    public String toETag(String variant) {
+        long lastUpdatedMillis = lastUpdated != null
+                ? lastUpdated.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+        if (lastUpdatedMillis > System.currentTimeMillis() - SETTLE_MILLIS) {
+            return null;
+        }
+        String tag = (rowCount != null ? rowCount : 0) + "-" + lastUpdatedMillis;
+        if (variant != null) {
+            tag += "-" + Integer.toHexString(variant.hashCode());
+        }
+        return "\"" + tag + "\"";
+    }
+}
@@ -0,0 +1,30 @@
+package com.checkin.common;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 列表接口的条件请求：先按变更水位计算 ETag，与 If-None-Match 一致时直接返回 304，不再查询和序列化列表
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * 写入 ETag，并以 Cache-Control: no-cache 允许客户端缓存响应但每次校验；
+     * 返回 true 时响应已置为 304，调用方应直接返回 null
+     */
+    public static boolean checkNotModified(ServletWebRequest webRequest, String etag) {
+        if (etag == null) {
+            return false;
+        }
+        HttpServletResponse response = webRequest.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
+        return webRequest.checkNotModified(etag);
+    }
+}
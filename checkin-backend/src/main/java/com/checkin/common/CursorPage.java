@@ -0,0 +1,69 @@
+package com.checkin.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 基于 (check_in_time, id) 的游标分页结果
+ */
+public class CursorPage<T> {
+    private List<T> records;
+    private String nextCursor;
+    private Boolean hasMore;
+    private Long total;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> records, String nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    public List<T> getRecords() { return records; }
+    public void setRecords(List<T> records) { this.records = records; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public Boolean getHasMore() { return hasMore; }
+    public void setHasMore(Boolean hasMore) { this.hasMore = hasMore; }
+
+    public Long getTotal() { return total; }
+    public void setTotal(Long total) { this.total = total; }
+
+    public static String encodeCursor(LocalDateTime time, Long id) {
+        String raw = time.toString() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decodeCursor(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    public static class Cursor {
+        private final LocalDateTime time;
+        private final Long id;
+
+        public Cursor(LocalDateTime time, Long id) {
+            this.time = time;
+            this.id = id;
+        }
+
+        public LocalDateTime getTime() { return time; }
+        public Long getId() { return id; }
+    }
+}
@@ -0,0 +1,98 @@
+package com.checkin.common;
+
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.springframework.beans.BeanUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 列表接口的 fields= 参数：逗号分隔的实体属性名，同时收窄 SQL 查询列和 JSON 输出字段，主键总是返回
+ */
+public final class FieldSelection<T> {
+
+    private final Set<String> properties;
+    private final List<Method> getters;
+
+    private FieldSelection(Set<String> properties, List<Method> getters) {
+        this.properties = properties;
+        this.getters = getters;
+    }
+
+    /**
+     * fields 为空时返回 null，表示返回全部字段；包含实体中不存在的字段时抛出 IllegalArgumentException
+     */
+    public static <T> FieldSelection<T> parse(Class<T> entityClass, String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(entityClass);
+        Set<String> known = new HashSet<>();
+        for (TableFieldInfo field : tableInfo.getFieldList()) {
+            known.add(field.getProperty());
+        }
+
+        Set<String> properties = new LinkedHashSet<>();
+        properties.add(tableInfo.getKeyProperty());
+        for (String field : fields.split(",")) {
+            String property = field.trim();
+            if (property.isEmpty() || property.equals(tableInfo.getKeyProperty())) {
+                continue;
+            }
+            if (!known.contains(property)) {
+                throw new IllegalArgumentException("未知字段: " + property);
+            }
+            properties.add(property);
+        }
+
+        List<Method> getters = new ArrayList<>(properties.size());
+        for (String property : properties) {
+            getters.add(BeanUtils.getPropertyDescriptor(entityClass, property).getReadMethod());
+        }
+        return new FieldSelection<>(properties, getters);
+    }
+
+    /**
+     * 传给 QueryWrapper.select(entityClass, predicate)，只查询选中的列（主键列由 MyBatis-Plus 自动保留）
+     */
+    public Predicate<TableFieldInfo> columns() {
+        return field -> properties.contains(field.getProperty());
+    }
+
+    /**
+     * 选中字段的规范化表示，用于区分同一资源不同字段组合的 ETag
+     */
+    public String key() {
+        return String.join(",", properties);
+    }
+
+    public List<Map<String, Object>> project(List<T> rows) {
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            result.add(project(row));
+        }
+        return result;
+    }
+
+    public Map<String, Object> project(T row) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        int i = 0;
+        for (String property : properties) {
+            try {
+                item.put(property, getters.get(i++).invoke(row));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("读取字段失败: " + property, e);
+            }
+        }
+        return item;
+    }
+}
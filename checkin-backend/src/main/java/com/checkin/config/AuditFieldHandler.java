@@ -0,0 +1,29 @@
+package com.checkin.config;
+
+import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
+import org.apache.ibatis.reflection.MetaObject;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 填充实体上声明了 fill 的 created_at / updated_at；更新时总是覆盖 updated_at，
+ * 列表接口的变更水位依赖它随每次修改前进
+ */
+@Component
+public class AuditFieldHandler implements MetaObjectHandler {
+
+    @Override
+    public void insertFill(MetaObject metaObject) {
+        LocalDateTime now = LocalDateTime.now();
+        strictInsertFill(metaObject, "createdAt", LocalDateTime.class, now);
+        strictInsertFill(metaObject, "updatedAt", LocalDateTime.class, now);
+    }
+
+    @Override
+    public void updateFill(MetaObject metaObject) {
+        if (metaObject.hasSetter("updatedAt")) {
+            setFieldValByName("updatedAt", LocalDateTime.now(), metaObject);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.checkin.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 按路径分组的并发隔离舱：限制同时执行的请求数，超出时最多等待 maxWaitMs，仍无空位则立即拒绝
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+    private final int retryAfterSeconds;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public Bulkhead(String name, int maxConcurrent, long maxWaitMs, int retryAfterSeconds, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMs = maxWaitMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("bulkhead.active", permits, p -> maxConcurrent - p.availablePermits())
+                .tag("name", name)
+                .description("Requests currently executing inside the bulkhead")
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.max", this, b -> b.maxConcurrent)
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.waiting", waiting, AtomicInteger::get)
+                .tag("name", name)
+                .description("Requests queued for a bulkhead permit")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("bulkhead.wait")
+                .tag("name", name)
+                .description("Time spent waiting for a bulkhead permit")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("bulkhead.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public boolean tryAcquire() {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejectedCounter.increment();
+        }
+        return acquired;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 在许可内执行，供服务层只为真正访问数据库的调用（如合并计算的发起方）申请许可；无可用许可时抛出 BulkheadFullException
+     */
+    public <T> T execute(Supplier<T> supplier) {
+        if (!tryAcquire()) {
+            throw new BulkheadFullException(this);
+        }
+        try {
+            return supplier.get();
+        } finally {
+            release();
+        }
+    }
+
+    public String getName() { return name; }
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+}
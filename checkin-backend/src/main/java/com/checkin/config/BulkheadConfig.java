@@ -0,0 +1,67 @@
+package com.checkin.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 签到写入/状态查询与报表查询分别限流：报表并发上限低于连接池大小，
+ * 报表耗尽配额时快速失败，不再占满连接池导致签到请求排队。
+ * 带缓存或合并计算的统计接口（/attendance/statistics、monthly-summary、project-statistics）不在路径列表中，
+ * 由服务层只为实际访问数据库的调用申请报表许可，缓存命中和等待合并结果的请求不占许可
+ */
+@Configuration
+public class BulkheadConfig implements WebMvcConfigurer {
+
+    public static final String REPORT_REJECT_MESSAGE = "报表查询繁忙，请稍后重试";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bulkhead.write.max-concurrent:50}")
+    private int writeMaxConcurrent;
+
+    @Value("${bulkhead.write.max-wait-ms:2000}")
+    private long writeMaxWaitMs;
+
+    @Value("${bulkhead.write.retry-after-seconds:1}")
+    private int writeRetryAfterSeconds;
+
+    @Value("${bulkhead.write.paths:/checkin/checkin,/checkin/checkin/async,/checkin/checkout,/checkin/status,/checkin/status/*}")
+    private String[] writePaths;
+
+    @Value("${bulkhead.report.max-concurrent:4}")
+    private int reportMaxConcurrent;
+
+    @Value("${bulkhead.report.max-wait-ms:100}")
+    private long reportMaxWaitMs;
+
+    @Value("${bulkhead.report.retry-after-seconds:5}")
+    private int reportRetryAfterSeconds;
+
+    @Value("${bulkhead.report.paths:/attendance/records,/attendance/records/page,/attendance/user-statistics,/attendance/export,/attendance/export/**,/approval/statistics}")
+    private String[] reportPaths;
+
+    @Bean
+    public Bulkhead reportBulkhead() {
+        return new Bulkhead("report", reportMaxConcurrent, reportMaxWaitMs, reportRetryAfterSeconds, meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        Bulkhead write = new Bulkhead("write", writeMaxConcurrent, writeMaxWaitMs, writeRetryAfterSeconds, meterRegistry);
+        registry.addInterceptor(new BulkheadInterceptor(write, "签到请求过多，请稍后重试", objectMapper))
+                .addPathPatterns(writePaths);
+
+        registry.addInterceptor(new BulkheadInterceptor(reportBulkhead(), REPORT_REJECT_MESSAGE, objectMapper))
+                .addPathPatterns(reportPaths);
+    }
+}
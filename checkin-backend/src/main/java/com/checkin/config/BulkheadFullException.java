@@ -0,0 +1,18 @@
+package com.checkin.config;
+
+/**
+ * 服务层申请隔离舱许可失败，控制器据此返回 503 和 Retry-After
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public BulkheadFullException(Bulkhead bulkhead) {
+        super("隔离舱无可用许可: " + bulkhead.getName());
+        this.retryAfterSeconds = bulkhead.getRetryAfterSeconds();
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
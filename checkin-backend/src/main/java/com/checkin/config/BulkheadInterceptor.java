@@ -0,0 +1,56 @@
+package com.checkin.config;
+
+import com.checkin.common.Result;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 请求进入控制器前申请隔离舱许可，请求结束后释放；无可用许可时返回 503 和 Retry-After
+ */
+public class BulkheadInterceptor implements HandlerInterceptor {
+
+    private final Bulkhead bulkhead;
+    private final String rejectMessage;
+    private final ObjectMapper objectMapper;
+    private final String permitAttribute;
+
+    public BulkheadInterceptor(Bulkhead bulkhead, String rejectMessage, ObjectMapper objectMapper) {
+        this.bulkhead = bulkhead;
+        this.rejectMessage = rejectMessage;
+        this.objectMapper = objectMapper;
+        this.permitAttribute = BulkheadInterceptor.class.getName() + "." + bulkhead.getName();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getAttribute(permitAttribute) != null) {
+            // 异步请求再次分派时沿用已持有的许可
+            return true;
+        }
+        if (bulkhead.tryAcquire()) {
+            request.setAttribute(permitAttribute, Boolean.TRUE);
+            return true;
+        }
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", String.valueOf(bulkhead.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getWriter(), Result.error(HttpStatus.SERVICE_UNAVAILABLE.value(), rejectMessage));
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(permitAttribute) != null) {
+            request.removeAttribute(permitAttribute);
+            bulkhead.release();
+        }
+    }
+}
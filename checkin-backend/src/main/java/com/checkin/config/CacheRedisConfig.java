@@ -0,0 +1,53 @@
+package com.checkin.config;
+
+import com.checkin.service.ReferenceDataCache;
+import com.checkin.service.StatisticsCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订阅其他实例广播的缓存失效消息：基础数据缓存和统计缓存各用一个频道，按各自开关订阅
+ */
+@Configuration
+@ConditionalOnExpression("${reference-cache.redis.enabled:false} or ${statistics-cache.redis.enabled:false}")
+public class CacheRedisConfig {
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private StatisticsCache statisticsCache;
+
+    @Value("${reference-cache.redis.enabled:false}")
+    private boolean referenceCacheEnabled;
+
+    @Value("${statistics-cache.redis.enabled:false}")
+    private boolean statisticsCacheEnabled;
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (referenceCacheEnabled) {
+            container.addMessageListener(
+                    (message, pattern) -> referenceDataCache.onRemoteInvalidation(
+                            new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(referenceDataCache.getChannel()));
+        }
+        if (statisticsCacheEnabled) {
+            container.addMessageListener(
+                    (message, pattern) -> statisticsCache.onRemoteInvalidation(
+                            new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(statisticsCache.getChannel()));
+        }
+        return container;
+    }
+}
@@ -28,33 +28,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String requestTokenHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwtToken = null;
+        JwtUtil.TokenClaims claims = null;
 
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
+            String jwtToken = requestTokenHeader.substring(7);
             try {
-                username = jwtUtil.getUsernameFromToken(jwtToken);
+                claims = jwtUtil.parseToken(jwtToken);
             } catch (Exception e) {
                 logger.warn("Unable to get JWT Token");
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(jwtToken, username)) {
-                Long userId = jwtUtil.getUserIdFromToken(jwtToken);
-                String role = jwtUtil.getRoleFromToken(jwtToken);
-                
-                UsernamePasswordAuthenticationToken authToken = 
-                    new UsernamePasswordAuthenticationToken(
-                        username, 
-                        null, 
-                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
-                    );
-                
-                authToken.setDetails(userId);
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UsernamePasswordAuthenticationToken authToken = 
+                new UsernamePasswordAuthenticationToken(
+                    claims.getUsername(), 
+                    null, 
+                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + claims.getRole()))
+                );
+            
+            authToken.setDetails(claims.getUserId());
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
         filterChain.doFilter(request, response);
     }
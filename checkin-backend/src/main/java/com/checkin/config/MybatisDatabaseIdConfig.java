@@ -0,0 +1,26 @@
+package com.checkin.config;
+
+import org.apache.ibatis.mapping.DatabaseIdProvider;
+import org.apache.ibatis.mapping.VendorDatabaseIdProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Properties;
+
+/**
+ * 按数据库产品设置 MyBatis databaseId，个别语句可用 @Options(databaseId = ...) 按数据库区分参数（如流式读取的 fetchSize），
+ * 未指定 databaseId 的语句不受影响
+ */
+@Configuration
+public class MybatisDatabaseIdConfig {
+
+    @Bean
+    public DatabaseIdProvider databaseIdProvider() {
+        Properties properties = new Properties();
+        properties.setProperty("MySQL", "mysql");
+        properties.setProperty("H2", "h2");
+        VendorDatabaseIdProvider provider = new VendorDatabaseIdProvider();
+        provider.setProperties(properties);
+        return provider;
+    }
+}
@@ -0,0 +1,92 @@
+package com.checkin.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可选的只读从库：开启后应用使用的 DataSource 为主从路由数据源，
+ * @Transactional(readOnly = true) 的统计、列表、导出查询走从库，写入和其他查询走主库
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "replica-datasource", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("replica-datasource.hikari")
+    public HikariDataSource replicaDataSource(@Value("${replica-datasource.url}") String url,
+                                              @Value("${replica-datasource.username:${spring.datasource.username}}") String username,
+                                              @Value("${replica-datasource.password:${spring.datasource.password}}") String password,
+                                              @Value("${replica-datasource.driver-class-name:${spring.datasource.driver-class-name}}") String driverClassName) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setDriverClassName(driverClassName);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${replica-datasource.lag-query:SHOW SLAVE STATUS}") String lagQuery,
+            @Value("${replica-datasource.max-lag-seconds:10}") long maxLagSeconds) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, lagQuery, maxLagSeconds);
+        routing.checkReplicaLag();
+        return routing;
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService replicaLagChecker(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                                      @Value("${replica-datasource.lag-check-interval-ms:5000}") long intervalMs,
+                                                      MeterRegistry meterRegistry) {
+        Gauge.builder("datasource.replica.lag.seconds", replicaRoutingDataSource, ReplicaRoutingDataSource::getLagSeconds)
+                .description("Replication lag last observed on the read replica, -1 when unknown")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.available", replicaRoutingDataSource, r -> r.isReplicaAvailable() ? 1 : 0)
+                .description("Whether read-only transactions are currently routed to the replica")
+                .register(meterRegistry);
+
+        ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(replicaRoutingDataSource::checkReplicaLag, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        return checker;
+    }
+
+    /**
+     * 延迟到第一条语句执行时才取物理连接，此时事务的只读标记已就绪，路由才能生效
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
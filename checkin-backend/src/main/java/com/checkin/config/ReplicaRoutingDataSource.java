@@ -0,0 +1,92 @@
+package com.checkin.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 读写路由：只读事务在从库可用且复制延迟不超过阈值时走从库，其余（包括无事务的语句）走主库。
+ * 需要包在 LazyConnectionDataSourceProxy 中使用，保证取连接时只读标记已经设置
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final long maxLagSeconds;
+
+    private volatile boolean replicaAvailable;
+    private volatile long lagSeconds = -1;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, String lagQuery, long maxLagSeconds) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaAvailable && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return REPLICA;
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * 查询从库复制延迟；查询失败、复制中断（延迟为 NULL）或超过阈值时读请求回退到主库
+     */
+    public void checkReplicaLag() {
+        long lag;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                // 未配置复制（如本地测试库）时没有结果行，视为无延迟
+                lag = 0;
+            } else {
+                Object value = resultSet.getObject("Seconds_Behind_Master");
+                lag = value != null ? ((Number) value).longValue() : -1;
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("从库延迟检查失败，读请求回退到主库: {}", e.getMessage());
+            lag = -1;
+        }
+
+        boolean available = lag >= 0 && lag <= maxLagSeconds;
+        if (available != replicaAvailable) {
+            log.info("从库{}，复制延迟: {}秒", available ? "已启用" : "已停用", lag);
+        }
+        lagSeconds = lag;
+        replicaAvailable = available;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    /**
+     * 最近一次检查到的复制延迟（秒），-1 表示无法获取
+     */
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+}
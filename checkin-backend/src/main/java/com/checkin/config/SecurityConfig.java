@@ -48,6 +48,8 @@ public class SecurityConfig {
                 .requestMatchers(new AntPathRequestMatcher("/health")).permitAll()
                 .requestMatchers(new AntPathRequestMatcher("/actuator/health")).permitAll()
                 .requestMatchers(new AntPathRequestMatcher("/actuator/info")).permitAll()
+                .requestMatchers(new AntPathRequestMatcher("/actuator/prometheus")).permitAll()
+                .requestMatchers(new AntPathRequestMatcher("/actuator/slowqueries/**")).hasRole("管理员")
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,42 @@
+package com.checkin.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 慢SQL查看端点: GET /actuator/slowqueries，DELETE 清空缓冲区
+ */
+@Component
+@Endpoint(id = "slowqueries")
+public class SlowQueryEndpoint {
+
+    private final SlowQueryRecorder slowQueryRecorder;
+
+    private final long thresholdMillis;
+
+    public SlowQueryEndpoint(SlowQueryRecorder slowQueryRecorder,
+                             @Value("${slow-query.threshold-ms:500}") long thresholdMillis) {
+        this.slowQueryRecorder = slowQueryRecorder;
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowQueries() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("thresholdMillis", thresholdMillis);
+        data.put("totalRecorded", slowQueryRecorder.getTotalRecorded());
+        data.put("queries", slowQueryRecorder.snapshot());
+        return data;
+    }
+
+    @DeleteOperation
+    public void clear() {
+        slowQueryRecorder.clear();
+    }
+}
@@ -0,0 +1,126 @@
+package com.checkin.config;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录超过阈值的SQL及其绑定参数、影响行数和耗时；未超阈值的语句只多一次计时
+ */
+@Component
+@ConditionalOnProperty(prefix = "slow-query", name = "enabled", havingValue = "true", matchIfMissing = true)
+@Intercepts({
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class SlowQueryInterceptor implements Interceptor {
+
+    private final SlowQueryRecorder slowQueryRecorder;
+
+    private final long thresholdNanos;
+
+    public SlowQueryInterceptor(SlowQueryRecorder slowQueryRecorder,
+                                @Value("${slow-query.threshold-ms:500}") long thresholdMillis) {
+        this.slowQueryRecorder = slowQueryRecorder;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        Object result = invocation.proceed();
+        long elapsed = System.nanoTime() - start;
+        if (elapsed >= thresholdNanos) {
+            record(invocation.getArgs(), result, elapsed);
+        }
+        return result;
+    }
+
+    /**
+     * 影响行数取自返回值：查询为结果列表大小，更新为更新行数。
+     * selectList、selectPage 等常规查询的 ResultHandler 为 null，结果直接作为列表返回；
+     * 传入 ResultHandler 的查询（如 BaseMapper.selectOne 逐行回调检查结果数）返回的列表不含结果，
+     * 与游标查询一样记为 -1，不为每条查询包装计数器
+     */
+    private void record(Object[] args, Object result, long elapsedNanos) {
+        MappedStatement statement = (MappedStatement) args[0];
+        Object parameterObject = args[1];
+        BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : statement.getBoundSql(parameterObject);
+
+        boolean handlerQuery = args.length >= 4 && args[3] != null;
+        int rows = -1;
+        if (result instanceof Collection && !handlerQuery) {
+            rows = ((Collection<?>) result).size();
+        } else if (result instanceof Integer) {
+            rows = (Integer) result;
+        }
+
+        slowQueryRecorder.record(new SlowQueryRecorder.SlowQuery(
+                LocalDateTime.now(),
+                statement.getId(),
+                boundSql.getSql().replaceAll("\\s+", " ").trim(),
+                extractParameters(statement.getConfiguration(), boundSql, parameterObject),
+                rows,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+    }
+
+    /**
+     * 按 DefaultParameterHandler 的规则取出绑定参数值
+     */
+    private List<Object> extractParameters(Configuration configuration, BoundSql boundSql, Object parameterObject) {
+        List<ParameterMapping> mappings = boundSql.getParameterMappings();
+        List<Object> parameters = new ArrayList<>(mappings.size());
+        MetaObject metaObject = null;
+        for (ParameterMapping mapping : mappings) {
+            if (mapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = mapping.getProperty();
+            Object value;
+            try {
+                if (boundSql.hasAdditionalParameter(property)) {
+                    value = boundSql.getAdditionalParameter(property);
+                } else if (parameterObject == null) {
+                    value = null;
+                } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                    value = parameterObject;
+                } else {
+                    if (metaObject == null) {
+                        metaObject = configuration.newMetaObject(parameterObject);
+                    }
+                    value = metaObject.getValue(property);
+                }
+            } catch (RuntimeException e) {
+                value = "?";
+            }
+            parameters.add(value != null ? value.toString() : null);
+        }
+        return parameters;
+    }
+}
\ No newline at end of file
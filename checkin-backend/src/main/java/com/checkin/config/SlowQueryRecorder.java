@@ -0,0 +1,82 @@
+package com.checkin.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 慢SQL环形缓冲区，只保留最近 capacity 条记录
+ */
+@Component
+public class SlowQueryRecorder {
+
+    private final AtomicReferenceArray<SlowQuery> buffer;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SlowQueryRecorder(@Value("${slow-query.capacity:200}") int capacity) {
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void record(SlowQuery slowQuery) {
+        long index = sequence.getAndIncrement();
+        buffer.set((int) (index % buffer.length()), slowQuery);
+    }
+
+    /**
+     * 按时间倒序返回当前缓冲区中的慢SQL
+     */
+    public List<SlowQuery> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(0, end - buffer.length());
+        List<SlowQuery> result = new ArrayList<>((int) (end - start));
+        for (long i = end - 1; i >= start; i--) {
+            SlowQuery slowQuery = buffer.get((int) (i % buffer.length()));
+            if (slowQuery != null) {
+                result.add(slowQuery);
+            }
+        }
+        return result;
+    }
+
+    public long getTotalRecorded() {
+        return sequence.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < buffer.length(); i++) {
+            buffer.set(i, null);
+        }
+    }
+
+    public static class SlowQuery {
+        private final LocalDateTime time;
+        private final String statementId;
+        private final String sql;
+        private final List<Object> parameters;
+        private final int rows;
+        private final long elapsedMillis;
+
+        public SlowQuery(LocalDateTime time, String statementId, String sql,
+                         List<Object> parameters, int rows, long elapsedMillis) {
+            this.time = time;
+            this.statementId = statementId;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.rows = rows;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public LocalDateTime getTime() { return time; }
+        public String getStatementId() { return statementId; }
+        public String getSql() { return sql; }
+        public List<Object> getParameters() { return parameters; }
+        public int getRows() { return rows; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+}
@@ -1,15 +1,22 @@
 package com.checkin.controller;
 
+import com.checkin.common.ConditionalGet;
+import com.checkin.common.CursorPage;
+import com.checkin.common.FieldSelection;
 import com.checkin.common.Result;
 import com.checkin.entity.CheckInRecord;
+import com.checkin.entity.User;
 import com.checkin.service.ApprovalService;
+import com.checkin.service.UserService;
 import com.checkin.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,19 +28,41 @@ public class ApprovalController {
     @Autowired
     private ApprovalService approvalService;
 
+    @Autowired
+    private UserService userService;
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return (Long) authentication.getDetails();
+    }
+
     private String getCurrentUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return authentication.getName();
     }
 
     @GetMapping("/pending")
-    public Result<List<CheckInRecord>> getPendingApprovals() {
+    public Result<List<?>> getPendingApprovals(@RequestParam(required = false) String fields) {
+        try {
+            FieldSelection<CheckInRecord> selection = FieldSelection.parse(CheckInRecord.class, fields);
+            List<CheckInRecord> records = approvalService.getPendingApprovals(selection);
+            return Result.success(selection != null ? selection.project(records) : records);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/pending/page")
+    public Result<CursorPage<CheckInRecord>> getPendingApprovalPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<CheckInRecord> records = approvalService.getPendingApprovals();
-            return Result.success(records);
+            Long teamId = getScopeTeamId();
+            CursorPage<CheckInRecord> page = approvalService.getPendingApprovalPage(teamId, cursor, size);
+            return Result.success(page);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
@@ -65,21 +94,118 @@ public class ApprovalController {
         }
     }
 
+    /**
+     * 批量审批通过，请求体: {"items": [{"recordId": 1, "workContent": "..."}]} 或 {"recordIds": [1, 2]}；
+     * 队长只能处理本团队成员的记录
+     */
+    @PostMapping("/approve/batch")
+    @PreAuthorize("hasAnyRole('ROLE_队长', 'ROLE_管理员')")
+    public Result<List<Map<String, Object>>> batchApprove(@RequestBody Map<String, Object> request) {
+        try {
+            Map<Long, String> workContents = parseBatchItems(request, "workContent");
+            List<Map<String, Object>> outcomes = approvalService.batchApprove(workContents, getCurrentUsername(), getScopeTeamId());
+            return Result.success(outcomes);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 批量驳回，请求体: {"items": [{"recordId": 1, "rejectionReason": "..."}], "rejectionReason": "默认原因"}
+     */
+    @PostMapping("/reject/batch")
+    @PreAuthorize("hasAnyRole('ROLE_队长', 'ROLE_管理员')")
+    public Result<List<Map<String, Object>>> batchReject(@RequestBody Map<String, Object> request) {
+        try {
+            Map<Long, String> rejectionReasons = parseBatchItems(request, "rejectionReason");
+            List<Map<String, Object>> outcomes = approvalService.batchReject(rejectionReasons, getCurrentUsername(), getScopeTeamId());
+            return Result.success(outcomes);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 解析批量请求为 记录ID -> 字段值，单条未提供时使用请求级别的同名字段
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, String> parseBatchItems(Map<String, Object> request, String valueField) {
+        Object defaultValueObj = request.get(valueField);
+        String defaultValue = defaultValueObj != null ? defaultValueObj.toString() : null;
+
+        Map<Long, String> values = new LinkedHashMap<>();
+        Object items = request.get("items");
+        if (items instanceof List) {
+            for (Object item : (List<Object>) items) {
+                if (!(item instanceof Map) || ((Map<String, Object>) item).get("recordId") == null) {
+                    throw new RuntimeException("items 中每一项都必须包含 recordId");
+                }
+                Map<String, Object> itemMap = (Map<String, Object>) item;
+                Long recordId = parseRecordId(itemMap.get("recordId"));
+                Object value = itemMap.get(valueField);
+                values.put(recordId, value != null ? value.toString() : defaultValue);
+            }
+        }
+        Object recordIds = request.get("recordIds");
+        if (recordIds instanceof List) {
+            for (Object recordId : (List<Object>) recordIds) {
+                values.putIfAbsent(parseRecordId(recordId), defaultValue);
+            }
+        }
+        return values;
+    }
+
+    private Long parseRecordId(Object recordId) {
+        if (recordId == null) {
+            throw new RuntimeException("recordId 不能为空");
+        }
+        try {
+            return Long.valueOf(recordId.toString());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("recordId 格式错误: " + recordId);
+        }
+    }
+
+    /**
+     * 审批范围：管理员不限团队（返回 null），其他角色只能处理本团队
+     */
+    private Long getScopeTeamId() {
+        User currentUser = userService.getById(getCurrentUserId());
+        if (currentUser == null) {
+            throw new RuntimeException("用户不存在");
+        }
+        if ("管理员".equals(currentUser.getRole())) {
+            return null;
+        }
+        if (currentUser.getTeamId() == null) {
+            throw new RuntimeException("当前用户未加入团队");
+        }
+        return currentUser.getTeamId();
+    }
+
     @GetMapping("/approved")
-    public Result<List<CheckInRecord>> getApprovedRecords() {
+    public Result<List<?>> getApprovedRecords(@RequestParam(required = false) String fields,
+                                              ServletWebRequest webRequest) {
         try {
-            List<CheckInRecord> records = approvalService.getApprovedRecords();
-            return Result.success(records);
+            FieldSelection<CheckInRecord> selection = FieldSelection.parse(CheckInRecord.class, fields);
+            String etag = approvalService.getApprovedRecordsWatermark()
+                    .toETag(selection != null ? selection.key() : null);
+            if (ConditionalGet.checkNotModified(webRequest, etag)) {
+                return null;
+            }
+            List<CheckInRecord> records = approvalService.getApprovedRecords(selection);
+            return Result.success(selection != null ? selection.project(records) : records);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
     @GetMapping("/rejected")
-    public Result<List<CheckInRecord>> getRejectedRecords() {
+    public Result<List<?>> getRejectedRecords(@RequestParam(required = false) String fields) {
         try {
-            List<CheckInRecord> records = approvalService.getRejectedRecords();
-            return Result.success(records);
+            FieldSelection<CheckInRecord> selection = FieldSelection.parse(CheckInRecord.class, fields);
+            List<CheckInRecord> records = approvalService.getRejectedRecords(selection);
+            return Result.success(selection != null ? selection.project(records) : records);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
@@ -88,15 +214,7 @@ public class ApprovalController {
     @GetMapping("/statistics")
     public Result<Map<String, Object>> getApprovalStatistics() {
         try {
-            List<CheckInRecord> pending = approvalService.getPendingApprovals();
-            List<CheckInRecord> approved = approvalService.getApprovedRecords();
-            List<CheckInRecord> rejected = approvalService.getRejectedRecords();
-
-            Map<String, Object> statistics = new HashMap<>();
-            statistics.put("pendingCount", pending.size());
-            statistics.put("approvedCount", approved.size());
-            statistics.put("rejectedCount", rejected.size());
-
+            Map<String, Object> statistics = approvalService.getApprovalStatistics();
             return Result.success(statistics);
         } catch (Exception e) {
             return Result.error(e.getMessage());
@@ -1,18 +1,38 @@
 package com.checkin.controller;
 
+import com.checkin.common.ConditionalGet;
+import com.checkin.common.CursorPage;
+import com.checkin.common.FieldSelection;
 import com.checkin.common.Result;
+import com.checkin.config.BulkheadConfig;
+import com.checkin.config.BulkheadFullException;
 import com.checkin.entity.CheckInRecord;
+import com.checkin.service.AttendanceRollupService;
 import com.checkin.service.AttendanceService;
+import com.checkin.service.StatisticsCache;
 import com.checkin.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/attendance")
@@ -22,6 +42,12 @@ public class AttendanceController {
     @Autowired
     private AttendanceService attendanceService;
 
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private StatisticsCache statisticsCache;
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -30,19 +56,58 @@ public class AttendanceController {
         return (Long) authentication.getDetails();
     }
 
+    /**
+     * 统计查询在服务层申请报表许可，拿不到时与隔离舱拦截器一样返回 503 和 Retry-After
+     */
+    private <T> Result<T> reportBusy(HttpServletResponse response, BulkheadFullException e) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+        return Result.error(HttpStatus.SERVICE_UNAVAILABLE.value(), BulkheadConfig.REPORT_REJECT_MESSAGE);
+    }
+
     @GetMapping("/records")
-    public Result<List<CheckInRecord>> getAttendanceRecords(
+    public Result<List<?>> getAttendanceRecords(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
             @RequestParam(required = false) String userId,
-            @RequestParam(required = false) String type) {
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest webRequest) {
         try {
             LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
             LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
             Long userIdLong = userId != null ? Long.valueOf(userId) : null;
+            FieldSelection<CheckInRecord> selection = FieldSelection.parse(CheckInRecord.class, fields);
+
+            String etag = attendanceService.getAttendanceRecordsWatermark(start, end, userIdLong, type)
+                    .toETag(selection != null ? selection.key() : null);
+            if (ConditionalGet.checkNotModified(webRequest, etag)) {
+                return null;
+            }
             
-            List<CheckInRecord> records = attendanceService.getAttendanceRecords(start, end, userIdLong, type);
-            return Result.success(records);
+            List<CheckInRecord> records = attendanceService.getAttendanceRecords(start, end, userIdLong, type, selection);
+            return Result.success(selection != null ? selection.project(records) : records);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/records/page")
+    public Result<CursorPage<CheckInRecord>> getAttendanceRecordPage(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
+            LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
+            Long userIdLong = userId != null ? Long.valueOf(userId) : null;
+
+            CursorPage<CheckInRecord> page = attendanceService.getAttendanceRecordPage(
+                    start, end, userIdLong, type, cursor, size);
+            return Result.success(page);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
@@ -52,7 +117,8 @@ public class AttendanceController {
     public Result<Map<String, Object>> getAttendanceStatistics(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
-            @RequestParam(required = false) String userId) {
+            @RequestParam(required = false) String userId,
+            HttpServletResponse response) {
         try {
             LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
             LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
@@ -60,6 +126,8 @@ public class AttendanceController {
             
             Map<String, Object> statistics = attendanceService.getAttendanceStatistics(start, end, userIdLong);
             return Result.success(statistics);
+        } catch (BulkheadFullException e) {
+            return reportBusy(response, e);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
@@ -79,7 +147,8 @@ public class AttendanceController {
     @GetMapping("/monthly-summary")
     public Result<Map<String, Object>> getMonthlySummary(
             @RequestParam(required = false) Integer year,
-            @RequestParam(required = false) Integer month) {
+            @RequestParam(required = false) Integer month,
+            HttpServletResponse response) {
         try {
             if (year == null) {
                 year = java.time.Year.now().getValue();
@@ -90,14 +159,19 @@ public class AttendanceController {
             
             Map<String, Object> summary = attendanceService.getMonthlySummary(year, month);
             return Result.success(summary);
+        } catch (BulkheadFullException e) {
+            return reportBusy(response, e);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
     @GetMapping("/projects")
-    public Result<List<Map<String, Object>>> getProjectList() {
+    public Result<List<Map<String, Object>>> getProjectList(ServletWebRequest webRequest) {
         try {
+            if (ConditionalGet.checkNotModified(webRequest, attendanceService.getProjectListETag())) {
+                return null;
+            }
             List<Map<String, Object>> projects = attendanceService.getProjectList();
             return Result.success(projects);
         } catch (Exception e) {
@@ -106,15 +180,38 @@ public class AttendanceController {
     }
 
     @GetMapping("/project-statistics")
-    public Result<Map<String, Object>> getProjectStatistics(@RequestParam String projectName) {
+    public Result<Map<String, Object>> getProjectStatistics(@RequestParam String projectName,
+                                                            HttpServletResponse response) {
         try {
             Map<String, Object> statistics = attendanceService.getProjectStatistics(projectName);
             return Result.success(statistics);
+        } catch (BulkheadFullException e) {
+            return reportBusy(response, e);
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasRole('ROLE_管理员')")
+    public Result<Map<String, Object>> rebuildRollup(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        try {
+            LocalDate start = startDate != null ? LocalDate.parse(startDate) : null;
+            LocalDate end = endDate != null ? LocalDate.parse(endDate) : null;
+
+            int rows = attendanceRollupService.rebuild(start, end);
+            statisticsCache.invalidateAll();
+
+            Map<String, Object> data = new HashMap<>();
+            data.put("rollupRows", rows);
+            return Result.success(data);
+        } catch (Exception e) {
+            return Result.error("重建工时汇总失败: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/export")
     public Result<Map<String, Object>> exportAttendanceData(
             @RequestParam(required = false) String startDate,
@@ -132,4 +229,29 @@ public class AttendanceController {
             return Result.error(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/export/csv")
+    public void exportAttendanceCsv(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        LocalDateTime start = startDate != null ? LocalDateTime.parse(startDate) : null;
+        LocalDateTime end = endDate != null ? LocalDateTime.parse(endDate) : null;
+        Long userIdLong = userId != null ? Long.valueOf(userId) : null;
+
+        String fileName = "attendance-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".csv";
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192)) {
+            attendanceService.exportAttendanceCsv(start, end, userIdLong, type, writer);
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package com.checkin.controller;
 
+import com.checkin.common.FieldSelection;
 import com.checkin.common.Result;
 import com.checkin.entity.CheckInRecord;
 import com.checkin.entity.User;
+import com.checkin.service.CheckInIngestionService;
 import com.checkin.service.CheckInService;
+import com.checkin.service.TeamStatusStreamService;
 import com.checkin.service.UserService;
 import com.checkin.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +40,12 @@ public class CheckInController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired(required = false)
+    private CheckInIngestionService checkInIngestionService;
+
+    @Autowired
+    private TeamStatusStreamService teamStatusStreamService;
+
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return (Long) authentication.getDetails();
@@ -53,11 +69,55 @@ public class CheckInController {
 
             CheckInRecord record = checkInService.checkIn(userId, userName, type, subType, location, latitude, longitude, projectId);
             return Result.success(record);
+        } catch (DuplicateKeyException e) {
+            return Result.error(409, e.getMessage());
         } catch (Exception e) {
             return Result.error(e.getMessage());
         }
     }
 
+    /**
+     * 异步签到：校验通过后立即返回请求ID，记录由后台批量写入
+     */
+    @PostMapping("/checkin/async")
+    public Result<Map<String, Object>> checkInAsync(@RequestBody Map<String, Object> checkInRequest) {
+        if (checkInIngestionService == null) {
+            return Result.error(404, "异步签到未启用");
+        }
+        try {
+            Long userId = getCurrentUserId();
+            String userName = (String) checkInRequest.get("userName");
+            String type = (String) checkInRequest.get("type");
+            String subType = (String) checkInRequest.get("subType");
+            String location = (String) checkInRequest.get("location");
+
+            Object latitudeObj = checkInRequest.get("latitude");
+            Object longitudeObj = checkInRequest.get("longitude");
+
+            Double latitude = latitudeObj != null ? Double.valueOf(latitudeObj.toString()) : null;
+            Double longitude = longitudeObj != null ? Double.valueOf(longitudeObj.toString()) : null;
+            Long projectId = checkInRequest.get("projectId") != null ? Long.valueOf(checkInRequest.get("projectId").toString()) : null;
+
+            return Result.success(checkInIngestionService.submit(userId, userName, type, subType, location, latitude, longitude, projectId));
+        } catch (IllegalStateException e) {
+            return Result.error(503, e.getMessage());
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @GetMapping("/checkin/async/{requestId}")
+    public Result<Map<String, Object>> getCheckInAsyncResult(@PathVariable String requestId) {
+        if (checkInIngestionService == null) {
+            return Result.error(404, "异步签到未启用");
+        }
+        Map<String, Object> result = checkInIngestionService.getResult(requestId);
+        if (result == null) {
+            return Result.error(404, "签到请求不存在或已过期");
+        }
+        return Result.success(result);
+    }
+
     @PostMapping("/checkout")
     public Result<CheckInRecord> checkOut(@RequestBody Map<String, Object> request) {
         try {
@@ -100,14 +160,7 @@ public class CheckInController {
             Long userId = getCurrentUserId();
             
             // 获取所有类型的签到状态
-            Map<String, Object> data = new HashMap<>();
-            String[] types = {"construction", "travel", "stop"};
-            
-            for (String type : types) {
-                CheckInRecord currentRecord = checkInService.getCurrentCheckInStatus(userId, type);
-                data.put(type + "Record", currentRecord);
-                data.put(type + "CheckedIn", currentRecord != null && "checked_in".equals(currentRecord.getStatus()));
-            }
+            Map<String, Object> data = checkInService.getCurrentCheckInStatuses(userId);
             
             return Result.success(data);
         } catch (Exception e) {
@@ -136,7 +189,8 @@ public class CheckInController {
     public Result<Map<String, Object>> getTeamCheckInRecords(
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate,
-            @RequestParam(required = false) String userId) {
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String fields) {
         try {
             Long currentUserId = getCurrentUserId();
             User currentUser = userService.getById(currentUserId);
@@ -144,17 +198,18 @@ public class CheckInController {
             if (currentUser == null || !"队长".equals(currentUser.getRole())) {
                 return Result.error("无权限查看团队打卡记录");
             }
+            FieldSelection<CheckInRecord> selection = FieldSelection.parse(CheckInRecord.class, fields);
             
             // 获取团队成员列表
             List<User> teamMembers = userService.getTeamMembers(currentUser.getTeamId());
             
             // 获取团队成员的打卡记录
             List<CheckInRecord> teamRecords = checkInService.getTeamCheckInRecords(
-                currentUser.getTeamId(), startDate, endDate, userId);
+                currentUser.getTeamId(), startDate, endDate, userId, selection);
             
             Map<String, Object> data = new HashMap<>();
             data.put("teamMembers", teamMembers);
-            data.put("records", teamRecords);
+            data.put("records", selection != null ? selection.project(teamRecords) : teamRecords);
             
             return Result.success(data);
         } catch (Exception e) {
@@ -181,4 +236,26 @@ public class CheckInController {
             return Result.error(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 团队状态实时推送：连接后先收到 snapshot 事件（与 /team-status 数据相同），之后为成员状态变化的 status 事件
+     */
+    @GetMapping(value = "/team-status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ROLE_队长')")
+    public SseEmitter streamTeamStatus(HttpServletResponse response) {
+        Long currentUserId = getCurrentUserId();
+        User currentUser = userService.getById(currentUserId);
+
+        if (currentUser == null || !"队长".equals(currentUser.getRole())) {
+            throw new AccessDeniedException("无权限查看团队状态");
+        }
+        if (currentUser.getTeamId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "当前用户未加入团队");
+        }
+
+        // 关闭 nginx 代理缓冲，事件立即下发
+        response.setHeader("X-Accel-Buffering", "no");
+        response.setHeader("Cache-Control", "no-cache");
+        return teamStatusStreamService.subscribe(currentUser.getTeamId());
+    }
+}
@@ -0,0 +1,57 @@
+package com.checkin.controller;
+
+import com.checkin.common.Result;
+import com.checkin.entity.Project;
+import com.checkin.service.ProjectService;
+import com.checkin.service.ProjectSiteIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/projects")
+@CrossOrigin
+public class ProjectController {
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private ProjectSiteIndex projectSiteIndex;
+
+    /**
+     * 附近的项目现场，由内存索引计算，distance 为到现场中心的距离（米）
+     */
+    @GetMapping("/nearby")
+    public Result<List<Map<String, Object>>> getNearbyProjects(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(defaultValue = "2000") Integer radius,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        try {
+            if (!ProjectSiteIndex.isValidCoordinate(latitude, longitude)) {
+                return Result.error(400, "经纬度无效");
+            }
+            return Result.success(projectSiteIndex.findNearby(latitude, longitude, radius, Math.max(limit, 1)));
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{projectId}/site")
+    @PreAuthorize("hasRole('ROLE_管理员')")
+    public Result<Project> updateProjectSite(@PathVariable Long projectId, @RequestBody Map<String, Object> request) {
+        try {
+            Double latitude = request.get("latitude") != null ? Double.valueOf(request.get("latitude").toString()) : null;
+            Double longitude = request.get("longitude") != null ? Double.valueOf(request.get("longitude").toString()) : null;
+            Integer radius = request.get("radius") != null ? Integer.valueOf(request.get("radius").toString()) : null;
+
+            return Result.success(projectService.updateSite(projectId, latitude, longitude, radius));
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+}
@@ -20,6 +20,15 @@ public class Project {
     @TableField("location")
     private String location;
 
+    @TableField("latitude")
+    private Double latitude;
+
+    @TableField("longitude")
+    private Double longitude;
+
+    @TableField("radius")
+    private Integer radius; // 签到范围半径（米）
+
     @TableField("description")
     private String description;
 
@@ -38,7 +47,10 @@ public class Project {
     @TableField(value = "created_at", fill = FieldFill.INSERT)
     private LocalDateTime createdAt;
 
-    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    /**
+     * 由数据库维护（DEFAULT / ON UPDATE CURRENT_TIMESTAMP），应用不写入，保证与项目现场索引的刷新水位使用同一时钟
+     */
+    @TableField(value = "updated_at", insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
     private LocalDateTime updatedAt;
 
     @TableLogic
@@ -58,6 +70,15 @@ public class Project {
     public String getLocation() { return location; }
     public void setLocation(String location) { this.location = location; }
 
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public Integer getRadius() { return radius; }
+    public void setRadius(Integer radius) { this.radius = radius; }
+
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
@@ -0,0 +1,38 @@
+package com.checkin.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.checkin.entity.AttendanceDailyRollup;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Mapper
+public interface AttendanceDailyRollupMapper extends BaseMapper<AttendanceDailyRollup> {
+
+    @Insert("INSERT INTO attendance_daily_rollup (user_id, user_name, project_id, type, work_date, work_hours, record_count, updated_at) " +
+            "VALUES (#{userId}, #{userName}, #{projectId}, #{type}, #{workDate}, #{workHours}, 1, NOW()) " +
+            "ON DUPLICATE KEY UPDATE work_hours = work_hours + VALUES(work_hours), record_count = record_count + 1, " +
+            "user_name = VALUES(user_name), updated_at = NOW()")
+    int accumulate(@Param("userId") Long userId,
+                   @Param("userName") String userName,
+                   @Param("projectId") Long projectId,
+                   @Param("type") String type,
+                   @Param("workDate") LocalDate workDate,
+                   @Param("workHours") double workHours);
+
+    @Delete("DELETE FROM attendance_daily_rollup WHERE work_date >= #{startDate} AND work_date < #{endDate}")
+    int deleteByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Insert("INSERT INTO attendance_daily_rollup (user_id, user_name, project_id, type, work_date, work_hours, record_count, updated_at) " +
+            "SELECT user_id, MAX(user_name), COALESCE(project_id, 0), COALESCE(type, ''), CAST(check_in_time AS DATE), " +
+            "SUM(TIMESTAMPDIFF(MINUTE, check_in_time, check_out_time)) / 60.0, COUNT(*), NOW() " +
+            "FROM checkin_record " +
+            "WHERE approved = true AND check_out_time IS NOT NULL AND deleted = 0 " +
+            "AND check_in_time >= #{startTime} AND check_in_time < #{endTime} " +
+            "GROUP BY user_id, COALESCE(project_id, 0), COALESCE(type, ''), CAST(check_in_time AS DATE)")
+    int rebuildFromRecords(@Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+}
@@ -1,22 +1,48 @@
 package com.checkin.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.checkin.common.ChangeWatermark;
 import com.checkin.entity.CheckInRecord;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface CheckInRecordMapper extends BaseMapper<CheckInRecord> {
 
-    @Select("SELECT * FROM checkin_record WHERE user_id = #{userId} AND type = #{type} AND DATE(check_in_time) = DATE(#{date}) AND status = 'checked_in' AND deleted = 0")
-    CheckInRecord findTodayCheckInByType(@Param("userId") Long userId, @Param("type") String type, @Param("date") LocalDateTime date);
+    /**
+     * 时间条件使用半开区间 [dayStart, dayEnd)，可走 (user_id, type, check_in_time) 索引
+     */
+    @Select("SELECT * FROM checkin_record WHERE user_id = #{userId} AND type = #{type} AND deleted = 0 AND check_in_time >= #{dayStart} AND check_in_time < #{dayEnd} ORDER BY check_in_time DESC LIMIT 1")
+    CheckInRecord findLastCheckInByType(@Param("userId") Long userId, @Param("type") String type,
+                                        @Param("dayStart") LocalDateTime dayStart, @Param("dayEnd") LocalDateTime dayEnd);
 
-    @Select("SELECT * FROM checkin_record WHERE user_id = #{userId} AND type = #{type} AND deleted = 0 AND DATE(check_in_time) = CURDATE() ORDER BY check_in_time DESC LIMIT 1")
-    CheckInRecord findLastCheckInByType(@Param("userId") Long userId, @Param("type") String type);
+    /**
+     * 批量查询一组用户在 [startTime, endTime) 内每种类型的最新一条记录
+     */
+    @Select("<script>" +
+            "SELECT r.* FROM checkin_record r " +
+            "JOIN (SELECT user_id, type, MAX(check_in_time) AS max_time FROM checkin_record " +
+            "WHERE deleted = 0 AND check_in_time &gt;= #{startTime} AND check_in_time &lt; #{endTime} " +
+            "AND user_id IN <foreach collection='userIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY user_id, type) latest " +
+            "ON r.user_id = latest.user_id AND r.type = latest.type AND r.check_in_time = latest.max_time " +
+            "WHERE r.deleted = 0" +
+            "</script>")
+    List<CheckInRecord> findLatestByUsersAndTypes(@Param("userIds") Collection<Long> userIds,
+                                                  @Param("startTime") LocalDateTime startTime,
+                                                  @Param("endTime") LocalDateTime endTime);
 
     @Select("SELECT * FROM checkin_record WHERE user_id = #{userId} AND status = 'checked_in' AND deleted = 0 ORDER BY check_in_time DESC LIMIT 1")
     CheckInRecord findLastCheckIn(@Param("userId") Long userId);
@@ -24,8 +50,73 @@ public interface CheckInRecordMapper extends BaseMapper<CheckInRecord> {
     @Select("SELECT * FROM checkin_record WHERE approved = false AND rejected = false AND deleted = 0")
     List<CheckInRecord> findPendingApprovals();
 
+    /**
+     * 流式读取，需在事务内消费。MySQL 上 fetchSize = Integer.MIN_VALUE 逐行流式返回，
+     * 不依赖全局的 useCursorFetch 连接参数；其他数据库（如 H2）不接受负数，按 1000 行一批读取
+     */
+    @Select("SELECT * FROM checkin_record ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE, databaseId = "mysql")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<CheckInRecord> streamByWrapper(@Param(Constants.WRAPPER) Wrapper<CheckInRecord> wrapper);
+
+    /**
+     * 条件范围内的记录数和最后修改时间，作为列表接口的变更水位；条件需自行包含 deleted = 0
+     */
+    @Select("SELECT COUNT(*) AS row_count, MAX(updated_at) AS last_updated FROM checkin_record ${ew.customSqlSegment}")
+    ChangeWatermark selectWatermark(@Param(Constants.WRAPPER) Wrapper<CheckInRecord> wrapper);
+
+    /**
+     * 按审批状态分组计数，可由 (approved, rejected, deleted) 索引覆盖
+     */
+    @Select("SELECT approved, rejected, COUNT(*) AS cnt FROM checkin_record WHERE deleted = 0 GROUP BY approved, rejected")
+    List<Map<String, Object>> countByApprovalState();
+
     @Select("SELECT * FROM checkin_record WHERE user_id = #{userId} AND check_in_time >= #{startDate} AND check_in_time <= #{endDate} AND deleted = 0")
     List<CheckInRecord> findByUserIdAndDateRange(@Param("userId") Long userId, 
                                                    @Param("startDate") LocalDateTime startDate, 
                                                    @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+
+    /**
+     * 加锁读取待批量处理的记录；teamId 不为 null 时只返回该团队成员的记录
+     */
+    @Select("<script>" +
+            "SELECT * FROM checkin_record WHERE deleted = 0 AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "<if test='teamId != null'>AND user_id IN (SELECT id FROM user WHERE team_id = #{teamId}) </if>" +
+            "FOR UPDATE" +
+            "</script>")
+    List<CheckInRecord> lockByIds(@Param("ids") Collection<Long> ids, @Param("teamId") Long teamId);
+
+    /**
+     * 批量审批通过，仅更新仍处于待审批状态的记录；workContents 中出现的记录同时更新工作内容
+     */
+    @Update("<script>" +
+            "UPDATE checkin_record SET approved = true, approved_by = #{approvedBy}, approval_time = #{approvalTime}, updated_at = #{approvalTime}" +
+            "<if test='workContents != null and !workContents.isEmpty()'>" +
+            ", work_content = CASE id " +
+            "<foreach collection='workContents' index='recordId' item='content'>WHEN #{recordId} THEN #{content} </foreach>" +
+            "ELSE work_content END" +
+            "</if> " +
+            "WHERE deleted = 0 AND (approved IS NULL OR approved = false) AND (rejected IS NULL OR rejected = false) AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int batchApprove(@Param("ids") Collection<Long> ids,
+                     @Param("workContents") Map<Long, String> workContents,
+                     @Param("approvedBy") String approvedBy,
+                     @Param("approvalTime") LocalDateTime approvalTime);
+
+    /**
+     * 批量驳回，仅更新未审批通过且未驳回的记录
+     */
+    @Update("<script>" +
+            "UPDATE checkin_record SET rejected = true, rejected_by = #{rejectedBy}, rejection_time = #{rejectionTime}, updated_at = #{rejectionTime}, " +
+            "rejection_reason = CASE id " +
+            "<foreach collection='reasons' index='recordId' item='reason'>WHEN #{recordId} THEN #{reason} </foreach>" +
+            "ELSE NULL END " +
+            "WHERE deleted = 0 AND (approved IS NULL OR approved = false) AND (rejected IS NULL OR rejected = false) AND id IN " +
+            "<foreach collection='reasons' index='recordId' open='(' separator=',' close=')'>#{recordId}</foreach>" +
+            "</script>")
+    int batchReject(@Param("reasons") Map<Long, String> reasons,
+                    @Param("rejectedBy") String rejectedBy,
+                    @Param("rejectionTime") LocalDateTime rejectionTime);
+}
@@ -3,7 +3,24 @@ package com.checkin.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.checkin.entity.Project;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface ProjectMapper extends BaseMapper<Project> {
-}
\ No newline at end of file
+
+    /**
+     * 查询指定时间之后修改过的项目，包含已逻辑删除的记录，供项目现场索引增量刷新
+     */
+    @Select("SELECT * FROM project WHERE updated_at >= #{since}")
+    List<Project> findUpdatedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * 数据库当前时间；updated_at 由数据库写入，增量刷新的水位必须取数据库时钟而不是应用服务器时钟
+     */
+    @Select("SELECT NOW()")
+    LocalDateTime selectNow();
+}
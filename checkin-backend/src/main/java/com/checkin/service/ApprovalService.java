@@ -1,28 +1,107 @@
 package com.checkin.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.checkin.common.ChangeWatermark;
+import com.checkin.common.CursorPage;
+import com.checkin.common.FieldSelection;
 import com.checkin.entity.CheckInRecord;
 import com.checkin.mapper.CheckInRecordMapper;
 import com.checkin.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ApprovalService extends ServiceImpl<CheckInRecordMapper, CheckInRecord> {
 
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
-    public List<CheckInRecord> getPendingApprovals() {
-        return baseMapper.findPendingApprovals();
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * fields 不为空时按与 findPendingApprovals 相同的条件只查询选中的列
+     */
+    @Transactional(readOnly = true)
+    public List<CheckInRecord> getPendingApprovals(FieldSelection<CheckInRecord> fields) {
+        if (fields == null) {
+            return baseMapper.findPendingApprovals();
+        }
+        return list(buildPendingSelectQuery(fields));
+    }
+
+    /**
+     * 团队待审批队列，按 (check_in_time, id) 正序游标分页，teamId 为 null 时不限团队
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CheckInRecord> getPendingApprovalPage(Long teamId, String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        CursorPage.Cursor position = CursorPage.decodeCursor(cursor);
+
+        // 多取一条用于判断是否还有下一页
+        List<CheckInRecord> records = list(buildPendingPageQuery(teamId, position, pageSize + 1));
+
+        String nextCursor = null;
+        if (records.size() > pageSize) {
+            records = new ArrayList<>(records.subList(0, pageSize));
+            CheckInRecord last = records.get(pageSize - 1);
+            nextCursor = CursorPage.encodeCursor(last.getCheckInTime(), last.getId());
+        }
+
+        CursorPage<CheckInRecord> page = new CursorPage<>(records, nextCursor);
+        page.setTotal(count(buildPendingQuery(teamId)));
+        return page;
+    }
+
+    public static LambdaQueryWrapper<CheckInRecord> buildPendingSelectQuery(FieldSelection<CheckInRecord> fields) {
+        return buildPendingQuery(null).select(CheckInRecord.class, fields.columns());
     }
 
+    /**
+     * 待审批游标分页查询，由 idx_checkin_approval_state (approved, rejected, deleted, check_in_time, id) 支撑排序
+     */
+    public static LambdaQueryWrapper<CheckInRecord> buildPendingPageQuery(Long teamId, CursorPage.Cursor position, int limit) {
+        LambdaQueryWrapper<CheckInRecord> query = buildPendingQuery(teamId);
+        if (position != null) {
+            query.and(w -> w.gt(CheckInRecord::getCheckInTime, position.getTime())
+                    .or(o -> o.eq(CheckInRecord::getCheckInTime, position.getTime())
+                            .gt(CheckInRecord::getId, position.getId())));
+        }
+        return query
+                .orderByAsc(CheckInRecord::getCheckInTime)
+                .orderByAsc(CheckInRecord::getId)
+                .last("LIMIT " + limit);
+    }
+
+    public static LambdaQueryWrapper<CheckInRecord> buildPendingQuery(Long teamId) {
+        return new LambdaQueryWrapper<CheckInRecord>()
+                .eq(CheckInRecord::getApproved, false)
+                .eq(CheckInRecord::getRejected, false)
+                .inSql(teamId != null, CheckInRecord::getUserId, "SELECT id FROM user WHERE team_id = " + teamId);
+    }
+
+    @Transactional
     public CheckInRecord approve(Long recordId, String workContent, String approvedBy) {
         CheckInRecord record = getById(recordId);
         if (record == null) {
@@ -43,6 +122,8 @@ public class ApprovalService extends ServiceImpl<CheckInRecordMapper, CheckInRec
         record.setApprovalTime(LocalDateTime.now());
 
         updateById(record);
+        attendanceRollupService.accumulate(record);
+        eventPublisher.publishEvent(new CheckInStatusEvent(CheckInStatusEvent.APPROVED, record));
         return record;
     }
 
@@ -62,20 +143,196 @@ public class ApprovalService extends ServiceImpl<CheckInRecordMapper, CheckInRec
         record.setRejectionTime(LocalDateTime.now());
 
         updateById(record);
+        eventPublisher.publishEvent(new CheckInStatusEvent(CheckInStatusEvent.REJECTED, record));
         return record;
     }
 
-    public List<CheckInRecord> getApprovedRecords() {
-        return lambdaQuery()
+    /**
+     * 批量审批通过：一次加锁查询 + 一条条件更新，按输入顺序返回每条记录的处理结果
+     *
+     * @param workContents 记录ID到工作内容的映射，值为 null 时保留原工作内容
+     * @param teamId       只处理该团队成员的记录，其余按 not_found 返回；null 时不限团队（管理员）
+     */
+    @Transactional
+    public List<Map<String, Object>> batchApprove(Map<Long, String> workContents, String approvedBy, Long teamId) {
+        checkBatchSize(workContents.size());
+        Map<Long, CheckInRecord> records = lockRecords(workContents.keySet(), teamId);
+
+        List<Map<String, Object>> outcomes = new ArrayList<>();
+        List<Long> approvableIds = new ArrayList<>();
+        Map<Long, String> contentUpdates = new HashMap<>();
+        for (Map.Entry<Long, String> entry : workContents.entrySet()) {
+            Long recordId = entry.getKey();
+            CheckInRecord record = records.get(recordId);
+            if (record == null) {
+                outcomes.add(outcome(recordId, false, "not_found", "记录不存在或不属于本团队"));
+            } else if (Boolean.TRUE.equals(record.getApproved())) {
+                outcomes.add(outcome(recordId, false, "already_approved", "该记录已经审批通过"));
+            } else if (Boolean.TRUE.equals(record.getRejected())) {
+                outcomes.add(outcome(recordId, false, "already_rejected", "该记录已被驳回，无法审批"));
+            } else {
+                approvableIds.add(recordId);
+                if (entry.getValue() != null) {
+                    contentUpdates.put(recordId, entry.getValue());
+                }
+                outcomes.add(outcome(recordId, true, "approved", "审批通过"));
+            }
+        }
+
+        if (!approvableIds.isEmpty()) {
+            LocalDateTime approvalTime = LocalDateTime.now();
+            baseMapper.batchApprove(approvableIds, contentUpdates, approvedBy, approvalTime);
+
+            for (Long recordId : approvableIds) {
+                CheckInRecord record = records.get(recordId);
+                record.setApproved(true);
+                record.setApprovedBy(approvedBy);
+                record.setApprovalTime(approvalTime);
+                if (contentUpdates.containsKey(recordId)) {
+                    record.setWorkContent(contentUpdates.get(recordId));
+                }
+                attendanceRollupService.accumulate(record);
+                eventPublisher.publishEvent(new CheckInStatusEvent(CheckInStatusEvent.APPROVED, record));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * 批量驳回：一次加锁查询 + 一条条件更新，按输入顺序返回每条记录的处理结果
+     *
+     * @param rejectionReasons 记录ID到驳回原因的映射
+     * @param teamId           只处理该团队成员的记录，其余按 not_found 返回；null 时不限团队（管理员）
+     */
+    @Transactional
+    public List<Map<String, Object>> batchReject(Map<Long, String> rejectionReasons, String rejectedBy, Long teamId) {
+        checkBatchSize(rejectionReasons.size());
+        Map<Long, CheckInRecord> records = lockRecords(rejectionReasons.keySet(), teamId);
+
+        List<Map<String, Object>> outcomes = new ArrayList<>();
+        Map<Long, String> rejectable = new LinkedHashMap<>();
+        for (Map.Entry<Long, String> entry : rejectionReasons.entrySet()) {
+            Long recordId = entry.getKey();
+            CheckInRecord record = records.get(recordId);
+            if (record == null) {
+                outcomes.add(outcome(recordId, false, "not_found", "记录不存在或不属于本团队"));
+            } else if (Boolean.TRUE.equals(record.getApproved())) {
+                outcomes.add(outcome(recordId, false, "already_approved", "该记录已经审批通过，无法驳回"));
+            } else if (Boolean.TRUE.equals(record.getRejected())) {
+                outcomes.add(outcome(recordId, false, "already_rejected", "该记录已被驳回"));
+            } else {
+                rejectable.put(recordId, entry.getValue());
+                outcomes.add(outcome(recordId, true, "rejected", "已驳回"));
+            }
+        }
+
+        if (!rejectable.isEmpty()) {
+            LocalDateTime rejectionTime = LocalDateTime.now();
+            baseMapper.batchReject(rejectable, rejectedBy, rejectionTime);
+
+            for (Map.Entry<Long, String> entry : rejectable.entrySet()) {
+                CheckInRecord record = records.get(entry.getKey());
+                record.setRejected(true);
+                record.setRejectedBy(rejectedBy);
+                record.setRejectionTime(rejectionTime);
+                record.setRejectionReason(entry.getValue());
+                eventPublisher.publishEvent(new CheckInStatusEvent(CheckInStatusEvent.REJECTED, record));
+            }
+        }
+        return outcomes;
+    }
+
+    private void checkBatchSize(int size) {
+        if (size == 0) {
+            throw new RuntimeException("记录ID不能为空");
+        }
+        if (size > MAX_BATCH_SIZE) {
+            throw new RuntimeException("单次最多处理" + MAX_BATCH_SIZE + "条记录");
+        }
+    }
+
+    private Map<Long, CheckInRecord> lockRecords(Collection<Long> recordIds, Long teamId) {
+        Map<Long, CheckInRecord> records = new HashMap<>();
+        for (CheckInRecord record : baseMapper.lockByIds(recordIds, teamId)) {
+            records.put(record.getId(), record);
+        }
+        return records;
+    }
+
+    private Map<String, Object> outcome(Long recordId, boolean success, String status, String message) {
+        Map<String, Object> outcome = new HashMap<>();
+        outcome.put("recordId", recordId);
+        outcome.put("success", success);
+        outcome.put("status", status);
+        outcome.put("message", message);
+        return outcome;
+    }
+
+    /**
+     * 待审批/已通过/已驳回数量，一条分组计数查询完成
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getApprovalStatistics() {
+        long pendingCount = 0;
+        long approvedCount = 0;
+        long rejectedCount = 0;
+        for (Map<String, Object> row : baseMapper.countByApprovalState()) {
+            Object approved = row.get("approved");
+            Object rejected = row.get("rejected");
+            long count = ((Number) row.get("cnt")).longValue();
+            if (isTrue(approved)) {
+                approvedCount += count;
+            }
+            if (isTrue(rejected)) {
+                rejectedCount += count;
+            }
+            // 与 findPendingApprovals 保持一致：approved、rejected 均明确为 false
+            if (isFalse(approved) && isFalse(rejected)) {
+                pendingCount += count;
+            }
+        }
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("pendingCount", pendingCount);
+        statistics.put("approvedCount", approvedCount);
+        statistics.put("rejectedCount", rejectedCount);
+        return statistics;
+    }
+
+    private boolean isTrue(Object flag) {
+        return flag instanceof Boolean ? (Boolean) flag : flag instanceof Number && ((Number) flag).intValue() != 0;
+    }
+
+    private boolean isFalse(Object flag) {
+        return flag instanceof Boolean ? !(Boolean) flag : flag instanceof Number && ((Number) flag).intValue() == 0;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CheckInRecord> getApprovedRecords(FieldSelection<CheckInRecord> fields) {
+        LambdaQueryWrapper<CheckInRecord> query = new LambdaQueryWrapper<>();
+        if (fields != null) {
+            query.select(CheckInRecord.class, fields.columns());
+        }
+        return list(query
+                .eq(CheckInRecord::getApproved, true)
+                .orderByDesc(CheckInRecord::getApprovalTime));
+    }
+
+    @Transactional(readOnly = true)
+    public ChangeWatermark getApprovedRecordsWatermark() {
+        return baseMapper.selectWatermark(new LambdaQueryWrapper<CheckInRecord>()
                 .eq(CheckInRecord::getApproved, true)
-                .orderByDesc(CheckInRecord::getApprovalTime)
-                .list();
+                .eq(CheckInRecord::getDeleted, 0));
     }
 
-    public List<CheckInRecord> getRejectedRecords() {
-        return lambdaQuery()
+    @Transactional(readOnly = true)
+    public List<CheckInRecord> getRejectedRecords(FieldSelection<CheckInRecord> fields) {
+        LambdaQueryWrapper<CheckInRecord> query = new LambdaQueryWrapper<>();
+        if (fields != null) {
+            query.select(CheckInRecord.class, fields.columns());
+        }
+        return list(query
                 .eq(CheckInRecord::getRejected, true)
-                .orderByDesc(CheckInRecord::getRejectionTime)
-                .list();
+                .orderByDesc(CheckInRecord::getRejectionTime));
     }
 }
\ No newline at end of file
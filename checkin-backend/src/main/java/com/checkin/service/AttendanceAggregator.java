@@ -0,0 +1,248 @@
+package com.checkin.service;
+
+import com.checkin.entity.AttendanceDailyRollup;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 工时汇总聚合：按用户ID累加，各类型工时保存在 double 数组中，逐行累加不产生装箱对象；
+ * 行数超过阈值时按区间拆分到 ForkJoin 公共池并行累加后合并
+ */
+final class AttendanceAggregator {
+
+    static final int PARALLEL_THRESHOLD = 20000;
+
+    private static final String[] TYPES = {"construction", "travel", "stop"};
+
+    private static final String[] TYPE_HOURS_KEYS = {"constructionHours", "travelHours", "stopHours"};
+
+    private AttendanceAggregator() {
+    }
+
+    static Totals aggregate(List<AttendanceDailyRollup> rollups, boolean includeDaily) {
+        return aggregate(rollups, includeDaily, PARALLEL_THRESHOLD);
+    }
+
+    static Totals aggregate(List<AttendanceDailyRollup> rollups, boolean includeDaily, int parallelThreshold) {
+        if (rollups.size() <= parallelThreshold || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return accumulate(rollups, 0, rollups.size(), includeDaily);
+        }
+        return ForkJoinPool.commonPool().invoke(
+                new AggregateTask(rollups, 0, rollups.size(), includeDaily, parallelThreshold));
+    }
+
+    private static Totals accumulate(List<AttendanceDailyRollup> rollups, int from, int to, boolean includeDaily) {
+        Totals totals = new Totals(includeDaily);
+        for (int i = from; i < to; i++) {
+            totals.add(rollups.get(i));
+        }
+        return totals;
+    }
+
+    static int typeIndex(String type) {
+        if (type == null) {
+            return -1;
+        }
+        switch (type) {
+            case "construction":
+                return 0;
+            case "travel":
+                return 1;
+            case "stop":
+                return 2;
+            default:
+                return -1;
+        }
+    }
+
+    private static class AggregateTask extends RecursiveTask<Totals> {
+        private final List<AttendanceDailyRollup> rollups;
+        private final int from;
+        private final int to;
+        private final boolean includeDaily;
+        private final int threshold;
+
+        AggregateTask(List<AttendanceDailyRollup> rollups, int from, int to, boolean includeDaily, int threshold) {
+            this.rollups = rollups;
+            this.from = from;
+            this.to = to;
+            this.includeDaily = includeDaily;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from <= threshold) {
+                return accumulate(rollups, from, to, includeDaily);
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(rollups, from, middle, includeDaily, threshold);
+            left.fork();
+            Totals right = new AggregateTask(rollups, middle, to, includeDaily, threshold).compute();
+            Totals result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+
+    static final class UserTotals {
+        private final Long userId;
+        private final String userName;
+        private long recordCount;
+        private double totalHours;
+        private final double[] typeHours = new double[TYPES.length];
+
+        UserTotals(Long userId, String userName) {
+            this.userId = userId;
+            this.userName = userName;
+        }
+
+        Long getUserId() { return userId; }
+        String getUserName() { return userName; }
+        long getRecordCount() { return recordCount; }
+        double getTotalHours() { return totalHours; }
+
+        private void merge(UserTotals other) {
+            recordCount += other.recordCount;
+            totalHours += other.totalHours;
+            for (int i = 0; i < typeHours.length; i++) {
+                typeHours[i] += other.typeHours[i];
+            }
+        }
+    }
+
+    static final class Totals {
+        private long recordCount;
+        private double totalHours;
+        private final double[] typeHours = new double[TYPES.length];
+        private final Map<Long, UserTotals> users = new HashMap<>();
+        private final Map<LocalDate, long[]> dailyRecords;
+
+        Totals(boolean includeDaily) {
+            this.dailyRecords = includeDaily ? new HashMap<>() : null;
+        }
+
+        long getRecordCount() { return recordCount; }
+        double getTotalHours() { return totalHours; }
+        Map<Long, UserTotals> getUsers() { return users; }
+
+        private void add(AttendanceDailyRollup rollup) {
+            double hours = rollup.getWorkHours();
+            int count = rollup.getRecordCount();
+            int type = typeIndex(rollup.getType());
+
+            recordCount += count;
+            totalHours += hours;
+            if (type >= 0) {
+                typeHours[type] += hours;
+            }
+
+            UserTotals user = users.get(rollup.getUserId());
+            if (user == null) {
+                user = new UserTotals(rollup.getUserId(), rollup.getUserName());
+                users.put(rollup.getUserId(), user);
+            }
+            user.recordCount += count;
+            user.totalHours += hours;
+            if (type >= 0) {
+                user.typeHours[type] += hours;
+            }
+
+            if (dailyRecords != null) {
+                long[] daily = dailyRecords.get(rollup.getWorkDate());
+                if (daily == null) {
+                    daily = new long[1];
+                    dailyRecords.put(rollup.getWorkDate(), daily);
+                }
+                daily[0] += count;
+            }
+        }
+
+        private void merge(Totals other) {
+            recordCount += other.recordCount;
+            totalHours += other.totalHours;
+            for (int i = 0; i < typeHours.length; i++) {
+                typeHours[i] += other.typeHours[i];
+            }
+            for (UserTotals user : other.users.values()) {
+                UserTotals existing = users.putIfAbsent(user.userId, user);
+                if (existing != null) {
+                    existing.merge(user);
+                }
+            }
+            if (dailyRecords != null) {
+                for (Map.Entry<LocalDate, long[]> entry : other.dailyRecords.entrySet()) {
+                    long[] existing = dailyRecords.putIfAbsent(entry.getKey(), entry.getValue());
+                    if (existing != null) {
+                        existing[0] += entry.getValue()[0];
+                    }
+                }
+            }
+        }
+
+        /**
+         * 按天的记录数，键为 yyyy-MM-dd；未开启按天统计时为空
+         */
+        Map<String, Long> dailyRecordCounts() {
+            Map<String, Long> result = new HashMap<>();
+            if (dailyRecords != null) {
+                for (Map.Entry<LocalDate, long[]> entry : dailyRecords.entrySet()) {
+                    result.put(entry.getKey().toString(), entry.getValue()[0]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 统计结果的 userStats 以用户名为键；同名用户以“用户名(用户ID)”区分，不再合并到一起
+         */
+        Map<String, UserTotals> usersByDisplayName() {
+            Map<String, Integer> nameCounts = new HashMap<>();
+            for (UserTotals user : users.values()) {
+                nameCounts.merge(String.valueOf(user.userName), 1, Integer::sum);
+            }
+
+            Map<String, UserTotals> result = new HashMap<>();
+            for (UserTotals user : users.values()) {
+                String name = user.userName != null ? user.userName : String.valueOf(user.userId);
+                if (nameCounts.get(String.valueOf(user.userName)) > 1) {
+                    name = name + "(" + user.userId + ")";
+                }
+                result.put(name, user);
+            }
+            return result;
+        }
+
+        Map<String, Object> toStatistics() {
+            Map<String, Map<String, Object>> userStats = new HashMap<>();
+            for (Map.Entry<String, UserTotals> entry : usersByDisplayName().entrySet()) {
+                UserTotals user = entry.getValue();
+                Map<String, Object> userStat = new HashMap<>();
+                userStat.put("userId", user.userId);
+                userStat.put("totalHours", user.totalHours);
+                for (int i = 0; i < TYPES.length; i++) {
+                    userStat.put(TYPE_HOURS_KEYS[i], user.typeHours[i]);
+                }
+                userStat.put("recordCount", user.recordCount);
+                userStats.put(entry.getKey(), userStat);
+            }
+
+            Map<String, Object> statistics = new HashMap<>();
+            statistics.put("totalRecords", recordCount);
+            statistics.put("totalHours", totalHours);
+            for (int i = 0; i < TYPES.length; i++) {
+                statistics.put(TYPE_HOURS_KEYS[i], typeHours[i]);
+            }
+            statistics.put("userStats", userStats);
+            if (dailyRecords != null) {
+                statistics.put("dailyRecords", dailyRecordCounts());
+            }
+            return statistics;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.checkin.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.checkin.entity.AttendanceDailyRollup;
+import com.checkin.entity.CheckInRecord;
+import com.checkin.mapper.AttendanceDailyRollupMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 按 (用户, 项目, 类型, 日期) 预聚合的工时汇总，统计接口读取该表而不是扫描签到明细。
+ * 汇总只在签退/审批时增量累加；应用内没有修改或删除已计入记录的入口，
+ * 直接改库修改工时、项目或逻辑删除记录后，必须调用 /attendance/rollup/rebuild 重建受影响的日期区间
+ */
+@Service
+public class AttendanceRollupService extends ServiceImpl<AttendanceDailyRollupMapper, AttendanceDailyRollup> {
+
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1970, 1, 1);
+
+    /**
+     * 记录同时满足“已审批”和“已签退”时计入汇总，需与签退/审批处于同一事务
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void accumulate(CheckInRecord record) {
+        if (!Boolean.TRUE.equals(record.getApproved()) || record.getCheckOutTime() == null) {
+            return;
+        }
+
+        double hours = Duration.between(record.getCheckInTime(), record.getCheckOutTime()).toMinutes() / 60.0;
+        baseMapper.accumulate(
+                record.getUserId(),
+                record.getUserName(),
+                record.getProjectId() != null ? record.getProjectId() : 0L,
+                record.getType() != null ? record.getType() : "",
+                record.getCheckInTime().toLocalDate(),
+                hours);
+    }
+
+    /**
+     * 根据签到明细重建指定日期区间（含首尾）的汇总数据，用于历史数据回填或修复
+     */
+    @Transactional
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        LocalDate start = startDate != null ? startDate : EARLIEST_DATE;
+        LocalDate endExclusive = (endDate != null ? endDate : LocalDate.now()).plusDays(1);
+
+        baseMapper.deleteByDateRange(start, endExclusive);
+        return baseMapper.rebuildFromRecords(start.atStartOfDay(), endExclusive.atStartOfDay());
+    }
+
+    /**
+     * 按日期粒度查询汇总行，时间参数只取日期部分（含首尾）
+     */
+    public List<AttendanceDailyRollup> listRollups(LocalDateTime startDate, LocalDateTime endDate,
+                                                   Long userId, Long projectId) {
+        return list(new LambdaQueryWrapper<AttendanceDailyRollup>()
+                .ge(startDate != null, AttendanceDailyRollup::getWorkDate,
+                        startDate != null ? startDate.toLocalDate() : null)
+                .le(endDate != null, AttendanceDailyRollup::getWorkDate,
+                        endDate != null ? endDate.toLocalDate() : null)
+                .eq(userId != null, AttendanceDailyRollup::getUserId, userId)
+                .eq(projectId != null, AttendanceDailyRollup::getProjectId, projectId));
+    }
+}
@@ -1,18 +1,34 @@
 package com.checkin.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.checkin.common.ChangeWatermark;
+import com.checkin.common.CursorPage;
+import com.checkin.common.FieldSelection;
+import com.checkin.config.Bulkhead;
+import com.checkin.config.BulkheadFullException;
+import com.checkin.entity.AttendanceDailyRollup;
 import com.checkin.entity.CheckInRecord;
 import com.checkin.entity.User;
 import com.checkin.mapper.CheckInRecordMapper;
 import com.checkin.mapper.UserMapper;
-import com.checkin.mapper.ProjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 @Service
 public class AttendanceService extends ServiceImpl<CheckInRecordMapper, CheckInRecord> {
@@ -24,171 +40,194 @@ public class AttendanceService extends ServiceImpl<CheckInRecordMapper, CheckInR
     private UserMapper userMapper;
 
     @Autowired
-    private ProjectMapper projectMapper;
+    private AttendanceRollupService attendanceRollupService;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private StatisticsCache statisticsCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Bulkhead reportBulkhead;
+
+    private SingleFlight<Map<String, Object>> statisticsFlight;
+
+    /**
+     * 带缓存或合并计算的统计只在实际查询时申请报表许可并开启事务：只读事务可走从库，读写事务固定走主库
+     */
+    private TransactionTemplate replicaReads;
+
+    private TransactionTemplate primaryReads;
+
+    static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] CSV_HEADERS = {
+            "签到人", "签到类型", "签到时间", "签退时间", "工作时长(小时)",
+            "签到地点", "工作内容", "审批时间"
+    };
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?");
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @PostConstruct
+    public void init() {
+        statisticsFlight = new SingleFlight<>("attendance-statistics", meterRegistry);
+        replicaReads = new TransactionTemplate(transactionManager);
+        replicaReads.setReadOnly(true);
+        primaryReads = new TransactionTemplate(transactionManager);
+    }
+
+    private <T> T report(boolean primary, Supplier<T> query) {
+        TransactionTemplate reads = primary ? primaryReads : replicaReads;
+        return reportBulkhead.execute(() -> reads.execute(status -> query.get()));
+    }
+
+    @Transactional(readOnly = true)
     public List<CheckInRecord> getAttendanceRecords(LocalDateTime startDate, LocalDateTime endDate, 
                                                    Long userId, String type) {
-        List<CheckInRecord> records = lambdaQuery()
-                .eq(CheckInRecord::getApproved, true)
-                .isNotNull(CheckInRecord::getCheckOutTime)
-                .orderByDesc(CheckInRecord::getCheckInTime)
-                .list();
-        
-        // 过滤条件
-        if (startDate != null) {
-            records = records.stream()
-                    .filter(record -> record.getCheckInTime().isAfter(startDate))
-                    .collect(Collectors.toList());
-        }
-        
-        if (endDate != null) {
-            records = records.stream()
-                    .filter(record -> record.getCheckInTime().isBefore(endDate))
-                    .collect(Collectors.toList());
+        return getAttendanceRecords(startDate, endDate, userId, type, null);
+    }
+
+    /**
+     * fields 不为空时只查询选中的列，未选中的属性为 null
+     */
+    @Transactional(readOnly = true)
+    public List<CheckInRecord> getAttendanceRecords(LocalDateTime startDate, LocalDateTime endDate,
+                                                   Long userId, String type, FieldSelection<CheckInRecord> fields) {
+        LambdaQueryWrapper<CheckInRecord> query = buildRecordQuery(startDate, endDate, userId, type);
+        if (fields != null) {
+            query.select(CheckInRecord.class, fields.columns());
         }
-        
-        if (userId != null) {
-            records = records.stream()
-                    .filter(record -> record.getUserId().equals(userId))
-                    .collect(Collectors.toList());
+        return list(query.orderByDesc(CheckInRecord::getCheckInTime));
+    }
+
+    /**
+     * 与 getAttendanceRecords 同一范围的变更水位，只做计数和取最大修改时间
+     */
+    @Transactional(readOnly = true)
+    public ChangeWatermark getAttendanceRecordsWatermark(LocalDateTime startDate, LocalDateTime endDate,
+                                                         Long userId, String type) {
+        return checkInRecordMapper.selectWatermark(buildRecordQuery(startDate, endDate, userId, type)
+                .eq(CheckInRecord::getDeleted, 0));
+    }
+
+    /**
+     * 按 (check_in_time, id) 倒序的游标分页查询，过滤条件全部下推到SQL
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CheckInRecord> getAttendanceRecordPage(LocalDateTime startDate, LocalDateTime endDate,
+                                                             Long userId, String type, String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        CursorPage.Cursor position = CursorPage.decodeCursor(cursor);
+
+        LambdaQueryWrapper<CheckInRecord> query = buildRecordQuery(startDate, endDate, userId, type);
+        if (position != null) {
+            query.and(w -> w.lt(CheckInRecord::getCheckInTime, position.getTime())
+                    .or(o -> o.eq(CheckInRecord::getCheckInTime, position.getTime())
+                            .lt(CheckInRecord::getId, position.getId())));
         }
-        
-        if (type != null && !type.equals("all")) {
-            records = records.stream()
-                    .filter(record -> type.equals(record.getType()))
-                    .collect(Collectors.toList());
+
+        // 多取一条用于判断是否还有下一页
+        List<CheckInRecord> records = list(query
+                .orderByDesc(CheckInRecord::getCheckInTime)
+                .orderByDesc(CheckInRecord::getId)
+                .last("LIMIT " + (pageSize + 1)));
+
+        String nextCursor = null;
+        if (records.size() > pageSize) {
+            records = new ArrayList<>(records.subList(0, pageSize));
+            CheckInRecord last = records.get(pageSize - 1);
+            nextCursor = CursorPage.encodeCursor(last.getCheckInTime(), last.getId());
         }
-        
-        return records;
+        return new CursorPage<>(records, nextCursor);
+    }
+
+    private LambdaQueryWrapper<CheckInRecord> buildRecordQuery(LocalDateTime startDate, LocalDateTime endDate,
+                                                               Long userId, String type) {
+        return new LambdaQueryWrapper<CheckInRecord>()
+                .eq(CheckInRecord::getApproved, true)
+                .isNotNull(CheckInRecord::getCheckOutTime)
+                .gt(startDate != null, CheckInRecord::getCheckInTime, startDate)
+                .lt(endDate != null, CheckInRecord::getCheckInTime, endDate)
+                .eq(userId != null, CheckInRecord::getUserId, userId)
+                .eq(type != null && !type.equals("all"), CheckInRecord::getType, type);
     }
 
     public Map<String, Object> getAttendanceStatistics(LocalDateTime startDate, LocalDateTime endDate, 
                                                       Long userId) {
-        List<CheckInRecord> records = getAttendanceRecords(startDate, endDate, userId, null);
-        
-        Map<String, Object> statistics = new HashMap<>();
-        statistics.put("totalRecords", records.size());
-        
-        double totalHours = 0;
-        double constructionHours = 0;
-        double travelHours = 0;
-        double stopHours = 0;
-        
-        Map<String, Map<String, Object>> userStats = new HashMap<>();
-        
-        for (CheckInRecord record : records) {
-            double hours = calculateWorkHours(record.getCheckInTime(), record.getCheckOutTime());
-            totalHours += hours;
-            
-            // 按类型统计工时
-            switch (record.getType()) {
-                case "construction":
-                    constructionHours += hours;
-                    break;
-                case "travel":
-                    travelHours += hours;
-                    break;
-                case "stop":
-                    stopHours += hours;
-                    break;
-            }
-            
-            // 按用户统计
-            String userName = record.getUserName();
-            if (!userStats.containsKey(userName)) {
-                userStats.put(userName, new HashMap<>());
-                userStats.get(userName).put("totalHours", 0.0);
-                userStats.get(userName).put("constructionHours", 0.0);
-                userStats.get(userName).put("travelHours", 0.0);
-                userStats.get(userName).put("stopHours", 0.0);
-                userStats.get(userName).put("recordCount", 0);
-            }
-            
-            Map<String, Object> userStat = userStats.get(userName);
-            userStat.put("totalHours", (Double) userStat.get("totalHours") + hours);
-            userStat.put("recordCount", (Integer) userStat.get("recordCount") + 1);
-            
-            switch (record.getType()) {
-                case "construction":
-                    userStat.put("constructionHours", (Double) userStat.get("constructionHours") + hours);
-                    break;
-                case "travel":
-                    userStat.put("travelHours", (Double) userStat.get("travelHours") + hours);
-                    break;
-                case "stop":
-                    userStat.put("stopHours", (Double) userStat.get("stopHours") + hours);
-                    break;
-            }
-        }
-        
-        statistics.put("totalHours", totalHours);
-        statistics.put("constructionHours", constructionHours);
-        statistics.put("travelHours", travelHours);
-        statistics.put("stopHours", stopHours);
-        statistics.put("userStats", userStats);
-        
-        return statistics;
+        // 看板同时发起的相同条件统计只查询、聚合一次；等待合并结果的请求不占连接和报表许可
+        String key = startDate + "|" + endDate + "|" + userId;
+        return statisticsFlight.execute(key, () -> report(false, () -> Collections.unmodifiableMap(aggregateRollups(
+                attendanceRollupService.listRollups(startDate, endDate, userId, null), false))));
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getUserStatistics(Long userId) {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime monthStart = now.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
+        LocalDate monthStartDate = monthStart.toLocalDate();
         
-        List<CheckInRecord> monthRecords = getAttendanceRecords(monthStart, now, userId, null);
-        List<CheckInRecord> allRecords = getAttendanceRecords(null, null, userId, null);
+        List<AttendanceDailyRollup> allRollups = attendanceRollupService.listRollups(null, now, userId, null);
         
         Map<String, Object> statistics = new HashMap<>();
         
-        // 本月统计
-        double monthTotalHours = monthRecords.stream()
-                .mapToDouble(record -> calculateWorkHours(record.getCheckInTime(), record.getCheckOutTime()))
-                .sum();
-        
-        // 总统计
-        double totalHours = allRecords.stream()
-                .mapToDouble(record -> calculateWorkHours(record.getCheckInTime(), record.getCheckOutTime()))
-                .sum();
+        int monthRecords = 0;
+        double monthTotalHours = 0;
+        int totalRecords = 0;
+        double totalHours = 0;
+        for (AttendanceDailyRollup rollup : allRollups) {
+            totalRecords += rollup.getRecordCount();
+            totalHours += rollup.getWorkHours();
+            // 本月统计
+            if (!rollup.getWorkDate().isBefore(monthStartDate)) {
+                monthRecords += rollup.getRecordCount();
+                monthTotalHours += rollup.getWorkHours();
+            }
+        }
         
-        statistics.put("monthRecords", monthRecords.size());
+        statistics.put("monthRecords", monthRecords);
         statistics.put("monthHours", monthTotalHours);
-        statistics.put("totalRecords", allRecords.size());
+        statistics.put("totalRecords", totalRecords);
         statistics.put("totalHours", totalHours);
         
         return statistics;
     }
 
     public Map<String, Object> getMonthlySummary(Integer year, Integer month) {
+        return statisticsCache.getMonthlySummary(year, month,
+                primary -> report(primary, () -> computeMonthlySummary(year, month)));
+    }
+
+    private Map<String, Object> computeMonthlySummary(Integer year, Integer month) {
         LocalDateTime monthStart = LocalDateTime.of(year, month, 1, 0, 0);
         LocalDateTime monthEnd = monthStart.plusMonths(1).minusSeconds(1);
         
-        List<CheckInRecord> records = getAttendanceRecords(monthStart, monthEnd, null, null);
+        List<AttendanceDailyRollup> rollups = attendanceRollupService.listRollups(monthStart, monthEnd, null, null);
         
         Map<String, Object> summary = new HashMap<>();
         summary.put("year", year);
         summary.put("month", month);
-        summary.put("totalRecords", records.size());
         
-        double totalHours = records.stream()
-                .mapToDouble(record -> calculateWorkHours(record.getCheckInTime(), record.getCheckOutTime()))
-                .sum();
-        summary.put("totalHours", totalHours);
-        
-        // 按天统计
-        Map<String, Long> dailyRecords = records.stream()
-                .collect(Collectors.groupingBy(
-                        record -> record.getCheckInTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
-                        Collectors.counting()
-                ));
-        summary.put("dailyRecords", dailyRecords);
-        
-        // 按用户统计
-        Map<String, Long> userRecords = records.stream()
-                .collect(Collectors.groupingBy(CheckInRecord::getUserName, Collectors.counting()));
+        AttendanceAggregator.Totals totals = AttendanceAggregator.aggregate(rollups, true);
+        Map<String, Long> userRecords = new HashMap<>();
+        for (Map.Entry<String, AttendanceAggregator.UserTotals> entry : totals.usersByDisplayName().entrySet()) {
+            userRecords.put(entry.getKey(), entry.getValue().getRecordCount());
+        }
+        summary.put("totalRecords", totals.getRecordCount());
+        summary.put("totalHours", totals.getTotalHours());
+        summary.put("dailyRecords", totals.dailyRecordCounts());
         summary.put("userRecords", userRecords);
         
         return summary;
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> exportAttendanceData(LocalDateTime startDate, LocalDateTime endDate, 
                                                   Long userId, String type) {
         List<CheckInRecord> records = getAttendanceRecords(startDate, endDate, userId, type);
@@ -206,14 +245,14 @@ public class AttendanceService extends ServiceImpl<CheckInRecordMapper, CheckInR
         List<List<String>> csvData = new ArrayList<>();
         for (CheckInRecord record : records) {
             List<String> row = Arrays.asList(
-                    record.getUserName(),
+                    record.getUserName() != null ? neutralizeFormula(record.getUserName()) : null,
                     getTypeLabel(record.getType(), record.getSubType()),
                     record.getCheckInTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
                     record.getCheckOutTime() != null ? 
                             record.getCheckOutTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : "",
                             String.format("%.2f", calculateWorkHours(record.getCheckInTime(), record.getCheckOutTime())),
-                            record.getLocation(),
-                            record.getWorkContent() != null ? record.getWorkContent() : "",
+                            record.getLocation() != null ? neutralizeFormula(record.getLocation()) : null,
+                            record.getWorkContent() != null ? neutralizeFormula(record.getWorkContent()) : "",
                             record.getApprovalTime() != null ? 
                                     record.getApprovalTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : ""
             );
@@ -226,37 +265,91 @@ public class AttendanceService extends ServiceImpl<CheckInRecordMapper, CheckInR
         return exportData;
     }
 
+    /**
+     * 以CSV格式流式导出考勤数据，逐行从数据库游标读取并直接写出，内存占用与导出行数无关
+     */
+    @Transactional(readOnly = true)
+    public long exportAttendanceCsv(LocalDateTime startDate, LocalDateTime endDate,
+                                    Long userId, String type, Writer writer) throws IOException {
+        LambdaQueryWrapper<CheckInRecord> query = buildRecordQuery(startDate, endDate, userId, type)
+                .eq(CheckInRecord::getDeleted, 0)
+                .orderByDesc(CheckInRecord::getCheckInTime);
+
+        // 写入BOM，便于Excel正确识别UTF-8中文
+        writer.write('\uFEFF');
+        writeCsvRow(writer, CSV_HEADERS);
+
+        long count = 0;
+        try (Cursor<CheckInRecord> cursor = checkInRecordMapper.streamByWrapper(query)) {
+            String[] row = new String[CSV_HEADERS.length];
+            for (CheckInRecord record : cursor) {
+                row[0] = record.getUserName();
+                row[1] = getTypeLabel(record.getType(), record.getSubType());
+                row[2] = record.getCheckInTime().format(DATE_TIME_FORMATTER);
+                row[3] = record.getCheckOutTime() != null ? record.getCheckOutTime().format(DATE_TIME_FORMATTER) : "";
+                row[4] = String.format("%.2f", calculateWorkHours(record.getCheckInTime(), record.getCheckOutTime()));
+                row[5] = record.getLocation();
+                row[6] = record.getWorkContent() != null ? record.getWorkContent() : "";
+                row[7] = record.getApprovalTime() != null ? record.getApprovalTime().format(DATE_TIME_FORMATTER) : "";
+                writeCsvRow(writer, row);
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private void writeCsvRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            value = neutralizeFormula(value);
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * 防止 CSV 公式注入：以 = + - @ 或制表符、回车开头的文本在表格软件中会被当作公式执行，
+     * 前面加单引号使其按文本显示；纯数字（如负数）不受影响
+     */
+    static String neutralizeFormula(String value) {
+        if (value.isEmpty() || "=+-@\t\r".indexOf(value.charAt(0)) < 0 || NUMBER.matcher(value).matches()) {
+            return value;
+        }
+        return "'" + value;
+    }
+
+    @Transactional(readOnly = true)
     public List<Map<String, Object>> getProjectList() {
-        // 从Project表中获取所有启用的项目信息，包含ID、编码和名称
-        return projectMapper.selectList(
-                new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<com.checkin.entity.Project>()
-                        .eq("status", "active")
-        ).stream()
-                .filter(project -> project.getProjectCode() != null && project.getProjectName() != null)
-                .map(project -> {
-                    Map<String, Object> projectInfo = new HashMap<>();
-                    projectInfo.put("id", project.getId());
-                    projectInfo.put("projectCode", project.getProjectCode());
-                    projectInfo.put("projectName", project.getProjectName());
-                    return projectInfo;
-                })
-                .distinct()
-                .sorted(Comparator.comparing(p -> (String) p.get("projectCode")))
-                .collect(Collectors.toList());
+        // 启用项目列表很少变化，走基础数据缓存
+        return referenceDataCache.getActiveProjectList();
+    }
+
+    public String getProjectListETag() {
+        return referenceDataCache.getActiveProjectListETag();
     }
 
     public Map<String, Object> getProjectStatistics(String projectName) {
         Map<String, Object> statistics = new HashMap<>();
         
         try {
-            // 1. 先根据项目名称查询项目ID
-            com.checkin.entity.Project project = projectMapper.selectOne(
-                new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<com.checkin.entity.Project>()
-                        .eq("project_name", projectName)
-                        .eq("status", "active")
-            );
+            // 1. 先根据项目名称查询项目ID（启用项目列表走基础数据缓存，命中时不访问数据库）
+            Long projectId = findActiveProjectId(projectName);
             
-            if (project == null) {
+            if (projectId == null) {
                 statistics.put("projectName", projectName);
                 statistics.put("totalRecords", 0);
                 statistics.put("totalHours", 0.0);
@@ -268,81 +361,13 @@ public class AttendanceService extends ServiceImpl<CheckInRecordMapper, CheckInR
                 return statistics;
             }
             
-            Long projectId = project.getId();
-            
-            // 2. 获取指定项目的所有考勤记录（通过project_id查询）
-            List<CheckInRecord> records = lambdaQuery()
-                    .eq(CheckInRecord::getApproved, true)
-                    .eq(CheckInRecord::getProjectId, projectId)
-                    .list();
-            
+            // 2. 获取指定项目的工时汇总（通过project_id查询）
+            statistics.putAll(statisticsCache.getProjectStatistics(projectId, primary -> report(primary,
+                    () -> aggregateRollups(attendanceRollupService.listRollups(null, null, null, projectId), true))));
             statistics.put("projectName", projectName);
-            statistics.put("totalRecords", records.size());
-            
-            double totalHours = 0;
-            double constructionHours = 0;
-            double travelHours = 0;
-            double stopHours = 0;
-            
-            Map<String, Map<String, Object>> userStats = new HashMap<>();
-            Map<String, Long> dailyRecords = new HashMap<>();
-            
-            for (CheckInRecord record : records) {
-                double hours = calculateWorkHours(record.getCheckInTime(), record.getCheckOutTime());
-                totalHours += hours;
-                
-                // 按类型统计工时
-                switch (record.getType()) {
-                    case "construction":
-                        constructionHours += hours;
-                        break;
-                    case "travel":
-                        travelHours += hours;
-                        break;
-                    case "stop":
-                        stopHours += hours;
-                        break;
-                }
-                
-                // 按用户统计
-                String userName = record.getUserName();
-                if (!userStats.containsKey(userName)) {
-                    userStats.put(userName, new HashMap<>());
-                    userStats.get(userName).put("totalHours", 0.0);
-                    userStats.get(userName).put("constructionHours", 0.0);
-                    userStats.get(userName).put("travelHours", 0.0);
-                    userStats.get(userName).put("stopHours", 0.0);
-                    userStats.get(userName).put("recordCount", 0);
-                }
-                
-                Map<String, Object> userStat = userStats.get(userName);
-                userStat.put("totalHours", (Double) userStat.get("totalHours") + hours);
-                userStat.put("recordCount", (Integer) userStat.get("recordCount") + 1);
-                
-                switch (record.getType()) {
-                    case "construction":
-                        userStat.put("constructionHours", (Double) userStat.get("constructionHours") + hours);
-                        break;
-                    case "travel":
-                        userStat.put("travelHours", (Double) userStat.get("travelHours") + hours);
-                        break;
-                    case "stop":
-                        userStat.put("stopHours", (Double) userStat.get("stopHours") + hours);
-                        break;
-                }
-                
-                // 按天统计
-                String date = record.getCheckInTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                dailyRecords.put(date, dailyRecords.getOrDefault(date, 0L) + 1);
-            }
-            
-            statistics.put("totalHours", totalHours);
-            statistics.put("constructionHours", constructionHours);
-            statistics.put("travelHours", travelHours);
-            statistics.put("stopHours", stopHours);
-            statistics.put("userStats", userStats);
-            statistics.put("dailyRecords", dailyRecords);
             
+        } catch (BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             // 返回默认值
@@ -359,15 +384,32 @@ public class AttendanceService extends ServiceImpl<CheckInRecordMapper, CheckInR
         return statistics;
     }
 
+    private Long findActiveProjectId(String projectName) {
+        for (Map<String, Object> project : referenceDataCache.getActiveProjectList()) {
+            if (projectName.equals(project.get("projectName"))) {
+                return (Long) project.get("id");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将日汇总行合并为统计结果：总工时、各类型工时、按用户统计，可选按天统计记录数
+     */
+    static Map<String, Object> aggregateRollups(List<AttendanceDailyRollup> rollups, boolean includeDaily) {
+        return AttendanceAggregator.aggregate(rollups, includeDaily).toStatistics();
+    }
+
     public List<CheckInRecord> getTodayUserCheckIns(Long userId, LocalDateTime date) {
         return lambdaQuery()
                 .eq(CheckInRecord::getUserId, userId)
-                .apply("DATE(check_in_time) = DATE({0})", date)
+                .ge(CheckInRecord::getCheckInTime, date.toLocalDate().atStartOfDay())
+                .lt(CheckInRecord::getCheckInTime, date.toLocalDate().plusDays(1).atStartOfDay())
                 .orderByAsc(CheckInRecord::getCheckInTime)
                 .list();
     }
 
-    private double calculateWorkHours(LocalDateTime checkInTime, LocalDateTime checkOutTime) {
+    static double calculateWorkHours(LocalDateTime checkInTime, LocalDateTime checkOutTime) {
         if (checkInTime == null || checkOutTime == null) {
             return 0;
         }
@@ -375,7 +417,7 @@ public class AttendanceService extends ServiceImpl<CheckInRecordMapper, CheckInR
         return java.time.Duration.between(checkInTime, checkOutTime).toMinutes() / 60.0;
     }
 
-    private String getTypeLabel(String type, String subType) {
+    static String getTypeLabel(String type, String subType) {
         Map<String, String> typeMap = new HashMap<>();
         typeMap.put("construction", "施工打卡");
         typeMap.put("travel", "在途打卡");
@@ -0,0 +1,252 @@
+package com.checkin.service;
+
+import com.checkin.entity.CheckInRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 签到写入缓冲：请求校验后立即返回请求ID并入队，由后台线程批量写入 checkin_record
+ */
+@Service
+@ConditionalOnProperty(prefix = "checkin.ingestion", name = "enabled", havingValue = "true")
+public class CheckInIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckInIngestionService.class);
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_SAVED = "saved";
+    public static final String STATUS_REJECTED = "rejected";
+
+    @Autowired
+    private CheckInService checkInService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${checkin.ingestion.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${checkin.ingestion.batch-size:200}")
+    private int batchSize;
+
+    @Value("${checkin.ingestion.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${checkin.ingestion.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    @Value("${checkin.ingestion.result-capacity:50000}")
+    private int resultCapacity;
+
+    @Value("${checkin.ingestion.result-ttl-seconds:3600}")
+    private long resultTtlSeconds;
+
+    private BlockingQueue<PendingCheckIn> queue;
+
+    /**
+     * 已入队未落库的 (用户, 类型, 日期)，保证队列中的签到同样满足“每日每类型只有一条未签退记录”
+     */
+    private final Map<String, String> pendingKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 请求ID -> 处理结果，按容量和写入时间淘汰
+     */
+    private Cache<String, Map<String, Object>> results;
+
+    private volatile boolean accepting = true;
+
+    private Thread writer;
+
+    private Counter savedCounter;
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        results = Caffeine.newBuilder()
+                .maximumSize(resultCapacity)
+                .expireAfterWrite(resultTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        Gauge.builder("checkin.ingestion.queue.size", queue, BlockingQueue::size)
+                .description("Check-ins waiting to be written")
+                .register(meterRegistry);
+        savedCounter = meterRegistry.counter("checkin.ingestion.records", "outcome", STATUS_SAVED);
+        rejectedCounter = meterRegistry.counter("checkin.ingestion.records", "outcome", STATUS_REJECTED);
+
+        writer = new Thread(this::writeLoop, "checkin-ingestion-writer");
+        writer.start();
+    }
+
+    /**
+     * 校验并入队，返回客户端可查询的请求ID；队列已满时在 offer-timeout-ms 后拒绝。
+     * 入队时不查库，与已落库记录的重复由写入时的唯一索引判定，结果为 rejected
+     */
+    public Map<String, Object> submit(Long userId, String userName, String type, String subType,
+                                      String location, Double latitude, Double longitude, Long projectId) {
+        if (!accepting) {
+            throw new IllegalStateException("服务正在停止，请稍后重试");
+        }
+        if (type == null || type.isEmpty()) {
+            throw new RuntimeException("打卡类型不能为空");
+        }
+
+        String requestId = UUID.randomUUID().toString();
+        String key = userId + ":" + type + ":" + LocalDate.now();
+        if (pendingKeys.putIfAbsent(key, requestId) != null) {
+            throw new RuntimeException("签到请求正在处理中，请勿重复提交");
+        }
+
+        // 入队前先记录 queued：入队后写入线程可能立即落库并写入最终结果，不能再被 queued 覆盖
+        Map<String, Object> result = putResult(requestId, STATUS_QUEUED, null, null);
+        try {
+            CheckInRecord record = checkInService.buildCheckInRecord(
+                    userId, userName, type, subType, location, latitude, longitude, projectId);
+            if (!queue.offer(new PendingCheckIn(requestId, key, record), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("签到请求过多，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            discard(requestId, key);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("签到请求过多，请稍后重试");
+        } catch (RuntimeException e) {
+            discard(requestId, key);
+            throw e;
+        }
+        return new HashMap<>(result);
+    }
+
+    public Map<String, Object> getResult(String requestId) {
+        return results.getIfPresent(requestId);
+    }
+
+    private void discard(String requestId, String key) {
+        results.invalidate(requestId);
+        pendingKeys.remove(key, requestId);
+    }
+
+    private void writeLoop() {
+        List<PendingCheckIn> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                PendingCheckIn first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // 停止时由 stop() 负责排空剩余队列
+                break;
+            } catch (RuntimeException e) {
+                log.error("签到批量写入失败", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingCheckIn> batch) {
+        List<CheckInRecord> records = new ArrayList<>(batch.size());
+        for (PendingCheckIn pending : batch) {
+            records.add(pending.record);
+        }
+
+        try {
+            checkInService.insertOpenCheckIns(records, batchSize);
+            for (PendingCheckIn pending : batch) {
+                complete(pending, STATUS_SAVED, null);
+            }
+        } catch (RuntimeException batchError) {
+            // 整批失败时逐条写入，定位并拒绝失败的记录（通常是违反未签退唯一约束的重复签到）
+            for (PendingCheckIn pending : batch) {
+                try {
+                    pending.record.setId(null);
+                    checkInService.insertOpenCheckIn(pending.record);
+                    complete(pending, STATUS_SAVED, null);
+                } catch (DuplicateKeyException e) {
+                    complete(pending, STATUS_REJECTED, e.getMessage());
+                } catch (RuntimeException e) {
+                    log.warn("签到写入失败, requestId={}", pending.requestId, e);
+                    complete(pending, STATUS_REJECTED, "签到写入失败");
+                }
+            }
+        }
+    }
+
+    private void complete(PendingCheckIn pending, String status, String message) {
+        putResult(pending.requestId, status, pending.record.getId(), message);
+        pendingKeys.remove(pending.key, pending.requestId);
+        if (STATUS_SAVED.equals(status)) {
+            savedCounter.increment();
+        } else {
+            rejectedCounter.increment();
+        }
+    }
+
+    private Map<String, Object> putResult(String requestId, String status, Long recordId, String message) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("requestId", requestId);
+        result.put("status", status);
+        result.put("recordId", recordId);
+        result.put("message", message);
+        results.put(requestId, result);
+        return result;
+    }
+
+    /**
+     * 停止接收新请求，并在应用关闭前把队列中的签到全部写入数据库
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        accepting = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (writer.isAlive()) {
+            writer.interrupt();
+            writer.join();
+        }
+
+        List<PendingCheckIn> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            flush(remaining.subList(i, Math.min(i + batchSize, remaining.size())));
+        }
+        log.info("签到写入队列已排空");
+    }
+
+    private static class PendingCheckIn {
+        private final String requestId;
+        private final String key;
+        private final CheckInRecord record;
+
+        PendingCheckIn(String requestId, String key, CheckInRecord record) {
+            this.requestId = requestId;
+            this.key = key;
+            this.record = record;
+        }
+    }
+}
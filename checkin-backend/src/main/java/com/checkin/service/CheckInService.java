@@ -1,17 +1,25 @@
 package com.checkin.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.checkin.common.FieldSelection;
 import com.checkin.entity.CheckInRecord;
 import com.checkin.entity.User;
 import com.checkin.mapper.CheckInRecordMapper;
 import com.checkin.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,20 +27,56 @@ import java.util.Map;
 @Service
 public class CheckInService extends ServiceImpl<CheckInRecordMapper, CheckInRecord> {
 
+    private static final String[] STATUS_TYPES = {"construction", "travel", "stop"};
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private AttendanceRollupService attendanceRollupService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProjectSiteIndex projectSiteIndex;
+
     public CheckInRecord checkIn(Long userId, String userName, String type, String subType,
                                  String location, Double latitude, Double longitude, Long projectId) {
-        // 检查该类型今天是否已经签到
-        CheckInRecord todayCheckIn = baseMapper.findTodayCheckInByType(userId, type, LocalDateTime.now());
-        if (todayCheckIn != null) {
-            throw new RuntimeException("今日" + getTypeLabel(type) + "已签到，请先签退");
+        CheckInRecord record = buildCheckInRecord(userId, userName, type, subType, location, latitude, longitude, projectId);
+        insertOpenCheckIn(record);
+        return record;
+    }
+
+    /**
+     * 同一用户同一类型每天只允许一条未签退记录，由唯一索引 uk_checkin_open_session 在插入时保证，
+     * 不再先查后插，并发请求或多实例部署下也只有一条能成功
+     */
+    public void insertOpenCheckIn(CheckInRecord record) {
+        try {
+            save(record);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateKeyException("今日" + getTypeLabel(record.getType()) + "已签到，请先签退");
         }
+        eventPublisher.publishEvent(new CheckInStatusEvent(CheckInStatusEvent.CHECKED_IN, record));
+    }
 
+    /**
+     * 批量写入签到记录（写入缓冲使用），违反未签退唯一约束时整批失败
+     */
+    @Transactional
+    public void insertOpenCheckIns(List<CheckInRecord> records, int batchSize) {
+        saveBatch(records, batchSize);
+        for (CheckInRecord record : records) {
+            eventPublisher.publishEvent(new CheckInStatusEvent(CheckInStatusEvent.CHECKED_IN, record));
+        }
+    }
+
+    public CheckInRecord buildCheckInRecord(Long userId, String userName, String type, String subType,
+                                            String location, Double latitude, Double longitude, Long projectId) {
         CheckInRecord record = new CheckInRecord();
         record.setUserId(userId);
         record.setUserName(userName);
@@ -43,16 +87,15 @@ public class CheckInService extends ServiceImpl<CheckInRecordMapper, CheckInReco
         record.setType(type);
         record.setSubType(subType);
         record.setStatus("checked_in");
-        record.setProjectId(projectId);
+        record.setProjectId(projectSiteIndex.resolveCheckInProject(projectId, latitude, longitude));
         record.setApproved(false);
         record.setRejected(false);
-
-        save(record);
         return record;
     }
 
+    @Transactional
     public CheckInRecord checkOut(Long userId, String type, String checkOutTime, String workContent, Long projectId) {
-        CheckInRecord lastCheckIn = baseMapper.findLastCheckInByType(userId, type);
+        CheckInRecord lastCheckIn = getCurrentCheckInStatus(userId, type);
         if (lastCheckIn == null || !"checked_in".equals(lastCheckIn.getStatus())) {
             throw new RuntimeException("没有找到有效的" + getTypeLabel(type) + "签到记录");
         }
@@ -80,16 +123,32 @@ public class CheckInService extends ServiceImpl<CheckInRecordMapper, CheckInReco
         double workHours = duration.toMinutes() / 60.0;
         lastCheckIn.setWorkHours(workHours);
 
-        updateById(lastCheckIn);
+        // 条件更新：并发的重复签退只有一个能把状态从 checked_in 改为 checked_out，工时只计入汇总一次
+        int updated = baseMapper.update(lastCheckIn, new LambdaUpdateWrapper<CheckInRecord>()
+                .eq(CheckInRecord::getId, lastCheckIn.getId())
+                .eq(CheckInRecord::getStatus, "checked_in"));
+        if (updated != 1) {
+            throw new RuntimeException("该" + getTypeLabel(type) + "签到记录已签退");
+        }
+        attendanceRollupService.accumulate(lastCheckIn);
+        eventPublisher.publishEvent(new CheckInStatusEvent(CheckInStatusEvent.CHECKED_OUT, lastCheckIn));
         return lastCheckIn;
     }
 
     public CheckInRecord getCurrentCheckInStatus(Long userId, String type) {
-        return baseMapper.findLastCheckInByType(userId, type);
+        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+        return baseMapper.findLastCheckInByType(userId, type, todayStart, todayStart.plusDays(1));
     }
 
-    public List<CheckInRecord> getTeamCheckInRecords(Long teamId, String startDate, String endDate, String userId) {
+    /**
+     * fields 不为空时只查询选中的列
+     */
+    public List<CheckInRecord> getTeamCheckInRecords(Long teamId, String startDate, String endDate, String userId,
+                                                     FieldSelection<CheckInRecord> fields) {
         QueryWrapper<CheckInRecord> queryWrapper = new QueryWrapper<>();
+        if (fields != null) {
+            queryWrapper.select(CheckInRecord.class, fields.columns());
+        }
 
         // 查询团队成员的记录
         queryWrapper.inSql("user_id", "SELECT id FROM user WHERE team_id = " + teamId + " AND role != '队长'");
@@ -114,24 +173,57 @@ public class CheckInService extends ServiceImpl<CheckInRecordMapper, CheckInReco
     public Map<String, Object> getTeamCurrentStatus(Long teamId) {
         List<User> teamMembers = userService.getTeamMembers(teamId);
         Map<String, Object> teamStatus = new HashMap<>();
+        if (teamMembers.isEmpty()) {
+            return teamStatus;
+        }
 
+        List<Long> memberIds = new ArrayList<>(teamMembers.size());
         for (User member : teamMembers) {
-            Map<String, Object> memberStatus = new HashMap<>();
-
-            // 获取各类型的当前状态
-            String[] types = {"construction", "travel", "stop"};
-            for (String type : types) {
-                CheckInRecord currentRecord = getCurrentCheckInStatus(member.getId(), type);
-                memberStatus.put(type + "Record", currentRecord);
-                memberStatus.put(type + "CheckedIn", currentRecord != null && "checked_in".equals(currentRecord.getStatus()));
-            }
+            memberIds.add(member.getId());
+        }
+        Map<Long, Map<String, CheckInRecord>> latestRecords = findTodayLatestRecords(memberIds);
 
-            teamStatus.put(member.getId().toString(), memberStatus);
+        for (User member : teamMembers) {
+            teamStatus.put(member.getId().toString(), buildStatusMap(latestRecords.get(member.getId())));
         }
 
         return teamStatus;
     }
 
+    /**
+     * 当前用户各类型的签到状态，一次查询取回所有类型
+     */
+    public Map<String, Object> getCurrentCheckInStatuses(Long userId) {
+        Map<Long, Map<String, CheckInRecord>> latestRecords = findTodayLatestRecords(Collections.singletonList(userId));
+        return buildStatusMap(latestRecords.get(userId));
+    }
+
+    private Map<Long, Map<String, CheckInRecord>> findTodayLatestRecords(List<Long> userIds) {
+        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+        List<CheckInRecord> records = baseMapper.findLatestByUsersAndTypes(userIds, todayStart, todayStart.plusDays(1));
+
+        Map<Long, Map<String, CheckInRecord>> latestRecords = new HashMap<>();
+        for (CheckInRecord record : records) {
+            Map<String, CheckInRecord> byType = latestRecords.computeIfAbsent(record.getUserId(), k -> new HashMap<>());
+            CheckInRecord existing = byType.get(record.getType());
+            // 签到时间相同时取ID较大的记录
+            if (existing == null || existing.getId() < record.getId()) {
+                byType.put(record.getType(), record);
+            }
+        }
+        return latestRecords;
+    }
+
+    private Map<String, Object> buildStatusMap(Map<String, CheckInRecord> recordsByType) {
+        Map<String, Object> status = new HashMap<>();
+        for (String type : STATUS_TYPES) {
+            CheckInRecord currentRecord = recordsByType != null ? recordsByType.get(type) : null;
+            status.put(type + "Record", currentRecord);
+            status.put(type + "CheckedIn", currentRecord != null && "checked_in".equals(currentRecord.getStatus()));
+        }
+        return status;
+    }
+
     private String getTypeLabel(String type) {
         switch (type) {
             case "construction":
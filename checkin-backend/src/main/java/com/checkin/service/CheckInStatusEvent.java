@@ -0,0 +1,25 @@
+package com.checkin.service;
+
+import com.checkin.entity.CheckInRecord;
+
+/**
+ * 签到记录状态变化事件：签到、签退、审批通过、驳回，事务提交后推送给团队状态订阅者
+ */
+public class CheckInStatusEvent {
+
+    public static final String CHECKED_IN = "checked_in";
+    public static final String CHECKED_OUT = "checked_out";
+    public static final String APPROVED = "approved";
+    public static final String REJECTED = "rejected";
+
+    private final String action;
+    private final CheckInRecord record;
+
+    public CheckInStatusEvent(String action, CheckInRecord record) {
+        this.action = action;
+        this.record = record;
+    }
+
+    public String getAction() { return action; }
+    public CheckInRecord getRecord() { return record; }
+}
@@ -0,0 +1,48 @@
+package com.checkin.service;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.checkin.entity.Project;
+import com.checkin.mapper.ProjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ProjectService extends ServiceImpl<ProjectMapper, Project> {
+
+    @Autowired
+    private ProjectSiteIndex projectSiteIndex;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    /**
+     * 设置项目现场坐标和签到范围，保存后立即更新现场索引
+     */
+    public Project updateSite(Long projectId, Double latitude, Double longitude, Integer radius) {
+        Project project = getById(projectId);
+        if (project == null) {
+            throw new RuntimeException("项目不存在");
+        }
+        if (latitude == null || longitude == null || !ProjectSiteIndex.isValidCoordinate(latitude, longitude)) {
+            throw new RuntimeException("经纬度无效");
+        }
+        if (radius != null && (radius <= 0 || radius > ProjectSiteIndex.MAX_SITE_RADIUS)) {
+            throw new RuntimeException("签到范围需在1到" + ProjectSiteIndex.MAX_SITE_RADIUS + "米之间");
+        }
+
+        // radius 为空表示恢复默认范围，需显式写入 NULL（updateById 会跳过空字段）
+        update(new LambdaUpdateWrapper<Project>()
+                .eq(Project::getId, projectId)
+                .set(Project::getLatitude, latitude)
+                .set(Project::getLongitude, longitude)
+                .set(Project::getRadius, radius));
+        project.setLatitude(latitude);
+        project.setLongitude(longitude);
+        project.setRadius(radius);
+
+        projectSiteIndex.upsert(project);
+        referenceDataCache.invalidateProject(projectId);
+        return project;
+    }
+}
@@ -0,0 +1,320 @@
+package com.checkin.service;
+
+import com.checkin.entity.Project;
+import com.checkin.mapper.ProjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启用项目现场的内存网格索引：按固定经纬度步长划分网格，每个现场登记到其签到范围覆盖的所有网格中，
+ * 定位查询只需读取所在网格的候选现场再计算距离，不访问数据库。
+ * 通过 ProjectService 修改现场时立即更新，直接改库的变更由定时任务按 updated_at 增量同步
+ */
+@Service
+public class ProjectSiteIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectSiteIndex.class);
+
+    private static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    static final int MAX_SITE_RADIUS = 5000;
+
+    private static final int MAX_SEARCH_RADIUS = 20000;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Value("${project-site-index.cell-size-degrees:0.01}")
+    private double cellSizeDegrees;
+
+    @Value("${project-site-index.default-radius:500}")
+    private int defaultRadius;
+
+    @Value("${project-site-index.enforce-range:false}")
+    private boolean enforceRange;
+
+    @Value("${project-site-index.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    private final Map<Long, ProjectSite> sites = new ConcurrentHashMap<>();
+
+    /**
+     * 网格键 -> 覆盖该网格的现场；数组写时复制，读取无需加锁
+     */
+    private final Map<Long, ProjectSite[]> cells = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime lastRefreshTime;
+
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "project-site-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshSafely, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    public synchronized void rebuild() {
+        LocalDateTime startedAt = projectMapper.selectNow();
+        sites.clear();
+        cells.clear();
+        for (Project project : projectMapper.selectList(null)) {
+            upsert(project);
+        }
+        lastRefreshTime = startedAt;
+        log.info("项目现场索引已重建，现场数: {}", sites.size());
+    }
+
+    /**
+     * 同步上次刷新之后修改过的项目（含停用、删除）；水位取查询前的数据库时间，与 updated_at 使用同一时钟
+     */
+    public synchronized void refresh() {
+        LocalDateTime startedAt = projectMapper.selectNow();
+        for (Project project : projectMapper.findUpdatedSince(lastRefreshTime)) {
+            upsert(project);
+        }
+        lastRefreshTime = startedAt;
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("项目现场索引增量刷新失败", e);
+        }
+    }
+
+    /**
+     * 登记或更新一个项目；未启用、已删除或缺少坐标的项目从索引中移除
+     */
+    public synchronized void upsert(Project project) {
+        remove(project.getId());
+        if (!"active".equals(project.getStatus())
+                || (project.getDeleted() != null && project.getDeleted() != 0)
+                || project.getLatitude() == null || project.getLongitude() == null
+                || !isValidCoordinate(project.getLatitude(), project.getLongitude())) {
+            return;
+        }
+
+        int radius = project.getRadius() != null && project.getRadius() > 0
+                ? Math.min(project.getRadius(), MAX_SITE_RADIUS) : defaultRadius;
+        ProjectSite site = new ProjectSite(project.getId(), project.getProjectName(), project.getProjectCode(),
+                project.getLatitude(), project.getLongitude(), radius);
+        sites.put(site.projectId, site);
+        for (long cell : coveringCells(site.latitude, site.longitude, radius)) {
+            cells.compute(cell, (key, existing) -> {
+                if (existing == null) {
+                    return new ProjectSite[]{site};
+                }
+                ProjectSite[] updated = Arrays.copyOf(existing, existing.length + 1);
+                updated[existing.length] = site;
+                return updated;
+            });
+        }
+    }
+
+    public synchronized void remove(Long projectId) {
+        ProjectSite site = sites.remove(projectId);
+        if (site == null) {
+            return;
+        }
+        for (long cell : coveringCells(site.latitude, site.longitude, site.radius)) {
+            cells.computeIfPresent(cell, (key, existing) -> {
+                List<ProjectSite> remaining = new ArrayList<>(existing.length);
+                for (ProjectSite candidate : existing) {
+                    if (candidate != site) {
+                        remaining.add(candidate);
+                    }
+                }
+                return remaining.isEmpty() ? null : remaining.toArray(new ProjectSite[0]);
+            });
+        }
+    }
+
+    /**
+     * 返回签到范围包含该坐标的最近现场，没有则返回 null
+     */
+    public ProjectSite findContaining(double latitude, double longitude) {
+        ProjectSite[] candidates = cells.get(cellKey(cellIndex(latitude), cellIndex(longitude)));
+        if (candidates == null) {
+            return null;
+        }
+        ProjectSite nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (ProjectSite site : candidates) {
+            double distance = distanceMeters(latitude, longitude, site.latitude, site.longitude);
+            if (distance <= site.radius && distance < nearestDistance) {
+                nearest = site;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * 签到范围与以该坐标为圆心、searchRadius 为半径的圆相交的现场，按距离由近到远排列
+     */
+    public List<Map<String, Object>> findNearby(double latitude, double longitude, int searchRadius, int limit) {
+        requireValidCoordinate(latitude, longitude);
+        int radius = Math.min(Math.max(searchRadius, 0), MAX_SEARCH_RADIUS);
+        Set<ProjectSite> seen = new HashSet<>();
+        List<Object[]> matches = new ArrayList<>();
+        for (long cell : coveringCells(latitude, longitude, radius)) {
+            ProjectSite[] candidates = cells.get(cell);
+            if (candidates == null) {
+                continue;
+            }
+            for (ProjectSite site : candidates) {
+                if (!seen.add(site)) {
+                    continue;
+                }
+                double distance = distanceMeters(latitude, longitude, site.latitude, site.longitude);
+                if (distance - site.radius <= radius) {
+                    matches.add(new Object[]{site, distance});
+                }
+            }
+        }
+        matches.sort((a, b) -> Double.compare((Double) a[1], (Double) b[1]));
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] match : matches.subList(0, Math.min(limit, matches.size()))) {
+            ProjectSite site = (ProjectSite) match[0];
+            double distance = (Double) match[1];
+            Map<String, Object> item = new HashMap<>();
+            item.put("projectId", site.projectId);
+            item.put("projectName", site.projectName);
+            item.put("projectCode", site.projectCode);
+            item.put("latitude", site.latitude);
+            item.put("longitude", site.longitude);
+            item.put("radius", site.radius);
+            item.put("distance", Math.round(distance));
+            item.put("inRange", distance <= site.radius);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 签到时确定项目：未选择项目时按坐标推荐所在现场；已选择且开启范围校验时，坐标不在该项目范围内则拒绝
+     */
+    public Long resolveCheckInProject(Long projectId, Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return projectId;
+        }
+        requireValidCoordinate(latitude, longitude);
+        if (projectId == null) {
+            ProjectSite site = findContaining(latitude, longitude);
+            return site != null ? site.projectId : null;
+        }
+        ProjectSite site = sites.get(projectId);
+        if (enforceRange && site != null
+                && distanceMeters(latitude, longitude, site.latitude, site.longitude) > site.radius) {
+            throw new RuntimeException("当前位置不在项目" + site.projectName + "的签到范围内");
+        }
+        return projectId;
+    }
+
+    /**
+     * 纬度 [-90, 90]、经度 [-180, 180] 内的有限数值
+     */
+    public static boolean isValidCoordinate(double latitude, double longitude) {
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    static void requireValidCoordinate(double latitude, double longitude) {
+        if (!isValidCoordinate(latitude, longitude)) {
+            throw new IllegalArgumentException("经纬度无效");
+        }
+    }
+
+    private List<Long> coveringCells(double latitude, double longitude, int radiusMeters) {
+        double latDelta = radiusMeters / METERS_PER_DEGREE;
+        double lonDelta = radiusMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+        // 循环变量用 long，索引取到 int 边界时也不会回绕成死循环
+        long minLat = cellIndex(latitude - latDelta);
+        long maxLat = cellIndex(latitude + latDelta);
+        long minLon = cellIndex(longitude - lonDelta);
+        long maxLon = cellIndex(longitude + lonDelta);
+
+        List<Long> keys = new ArrayList<>();
+        for (long lat = minLat; lat <= maxLat; lat++) {
+            for (long lon = minLon; lon <= maxLon; lon++) {
+                keys.add(cellKey((int) lat, (int) lon));
+            }
+        }
+        return keys;
+    }
+
+    private int cellIndex(double degrees) {
+        return (int) Math.floor(degrees / cellSizeDegrees);
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xFFFFFFFFL);
+    }
+
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+
+    public static class ProjectSite {
+        private final Long projectId;
+        private final String projectName;
+        private final String projectCode;
+        private final double latitude;
+        private final double longitude;
+        private final int radius;
+
+        ProjectSite(Long projectId, String projectName, String projectCode,
+                    double latitude, double longitude, int radius) {
+            this.projectId = projectId;
+            this.projectName = projectName;
+            this.projectCode = projectCode;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radius = radius;
+        }
+
+        public Long getProjectId() { return projectId; }
+        public String getProjectName() { return projectName; }
+        public String getProjectCode() { return projectCode; }
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        public int getRadius() { return radius; }
+    }
+}
@@ -0,0 +1,257 @@
+package com.checkin.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.checkin.entity.Project;
+import com.checkin.entity.User;
+import com.checkin.mapper.ProjectMapper;
+import com.checkin.mapper.UserMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户、团队成员、启用项目等基础数据的进程内缓存，容量和过期时间有上限。
+ * 通过服务层写入时显式失效；开启 reference-cache.redis.enabled 后失效消息经 Redis 广播给其他实例，
+ * 直接改库的变更最迟在 ttl 到期后生效。
+ * 返回的实体均为副本，调用方修改（如清空密码）不会影响缓存内容
+ */
+@Service
+public class ReferenceDataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    static final String USER = "user";
+
+    static final String PROJECT = "project";
+
+    /**
+     * 未加入团队的成员列表使用的键（团队ID从1开始）
+     */
+    private static final Long NO_TEAM = 0L;
+
+    private static final String ACTIVE = "active";
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${reference-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${reference-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${reference-cache.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    @Value("${reference-cache.redis.channel:checkin:reference-cache}")
+    private String channel;
+
+    private Cache<Long, User> usersById;
+
+    private Cache<String, User> usersByUsername;
+
+    private Cache<Long, List<User>> teamMembers;
+
+    private Cache<String, ActiveProjects> activeProjects;
+
+    @PostConstruct
+    public void init() {
+        usersById = build("reference.users.by-id");
+        usersByUsername = build("reference.users.by-username");
+        teamMembers = build("reference.team-members");
+        activeProjects = build("reference.projects.active");
+    }
+
+    private <K, V> Cache<K, V> build(String name) {
+        Cache<K, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        return cache;
+    }
+
+    public User getUser(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        return copy(usersById.get(userId, userMapper::selectById));
+    }
+
+    public User findUserByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        return copy(usersByUsername.get(username,
+                key -> userMapper.selectOne(new QueryWrapper<User>().eq("username", key))));
+    }
+
+    /**
+     * 团队成员（不含队长）；teamId 为空时返回未加入团队的用户
+     */
+    public List<User> getTeamMembers(Long teamId) {
+        List<User> members = teamMembers.get(teamId != null ? teamId : NO_TEAM, key -> {
+            QueryWrapper<User> query = new QueryWrapper<>();
+            if (NO_TEAM.equals(key)) {
+                query.isNull("team_id");
+            } else {
+                query.eq("team_id", key).ne("role", "队长");
+            }
+            return userMapper.selectList(query);
+        });
+        List<User> result = new ArrayList<>(members.size());
+        for (User member : members) {
+            result.add(copy(member));
+        }
+        return result;
+    }
+
+    /**
+     * 启用项目的 id / 编码 / 名称，按项目编码排序；列表和元素均不可修改
+     */
+    public List<Map<String, Object>> getActiveProjectList() {
+        return activeProjects.get(ACTIVE, key -> loadActiveProjects()).projects;
+    }
+
+    /**
+     * 启用项目列表的 ETag，列表加载时按内容计算，与列表一起缓存和失效
+     */
+    public String getActiveProjectListETag() {
+        return activeProjects.get(ACTIVE, key -> loadActiveProjects()).etag;
+    }
+
+    private ActiveProjects loadActiveProjects() {
+        List<Map<String, Object>> projects = new ArrayList<>();
+        for (Project project : projectMapper.selectList(new QueryWrapper<Project>().eq("status", "active"))) {
+            if (project.getProjectCode() == null || project.getProjectName() == null) {
+                continue;
+            }
+            Map<String, Object> projectInfo = new HashMap<>();
+            projectInfo.put("id", project.getId());
+            projectInfo.put("projectCode", project.getProjectCode());
+            projectInfo.put("projectName", project.getProjectName());
+            projects.add(Collections.unmodifiableMap(projectInfo));
+        }
+        projects.sort(Comparator.comparing(p -> (String) p.get("projectCode")));
+
+        StringBuilder content = new StringBuilder();
+        for (Map<String, Object> project : projects) {
+            content.append(project.get("id")).append('\t')
+                    .append(project.get("projectCode")).append('\t')
+                    .append(project.get("projectName")).append('\n');
+        }
+        String etag = "\"" + DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        return new ActiveProjects(Collections.unmodifiableList(projects), etag);
+    }
+
+    /**
+     * 用户新增、修改或删除后调用；用户名和团队归属可能变化，按用户名和团队的缓存整体清空
+     */
+    public void invalidateUser(Long userId) {
+        evictUser(userId);
+        publish(USER, userId);
+    }
+
+    /**
+     * 项目新增、修改或删除后调用
+     */
+    public void invalidateProject(Long projectId) {
+        evictProject();
+        publish(PROJECT, projectId);
+    }
+
+    private void evictUser(Long userId) {
+        if (userId != null) {
+            usersById.invalidate(userId);
+        }
+        usersByUsername.invalidateAll();
+        teamMembers.invalidateAll();
+    }
+
+    private void evictProject() {
+        activeProjects.invalidateAll();
+    }
+
+    private void publish(String entity, Long id) {
+        if (!redisEnabled) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(channel, nodeId + "|" + entity + "|" + (id != null ? id : ""));
+        } catch (RuntimeException e) {
+            // 广播失败时其他实例依赖 ttl 过期
+            log.warn("基础数据缓存失效广播失败: {} {}", entity, id, e);
+        }
+    }
+
+    /**
+     * 处理其他实例广播的失效消息，格式为 节点ID|实体|ID，忽略本实例发出的消息
+     */
+    public void onRemoteInvalidation(String message) {
+        String[] parts = message.split("\\|", -1);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        Long id = parts[2].isEmpty() ? null : Long.valueOf(parts[2]);
+        if (USER.equals(parts[1])) {
+            evictUser(id);
+        } else if (PROJECT.equals(parts[1])) {
+            evictProject();
+        }
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    private static final class ActiveProjects {
+        private final List<Map<String, Object>> projects;
+        private final String etag;
+
+        ActiveProjects(List<Map<String, Object>> projects, String etag) {
+            this.projects = projects;
+            this.etag = etag;
+        }
+    }
+
+    private static User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+}
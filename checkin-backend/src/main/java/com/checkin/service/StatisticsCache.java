@@ -0,0 +1,379 @@
+package com.checkin.service;
+
+import com.checkin.entity.CheckInRecord;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计结果两级缓存：L1 为进程内 Caffeine，L2 为 Redis（statistics-cache.redis.enabled 开启时）。
+ * 已结账月份（月末之后超过 closed-after-days 天）的结果长期有效，其余结果使用较短的 ttl；
+ * 签退、审批通过或驳回提交后，精确失效该记录所在月份和所属项目的结果，并广播给其他实例。
+ * 查询缓存不占用数据库连接，只有未命中时才调用 Loader；失效后 primary-read-seconds 内的重新计算要求读主库，
+ * 避免从库尚未同步时把旧结果写回缓存。
+ * L2 键带版本号：失效时递增键版本（整体失效递增纪元），计算前先读版本，
+ * 因此任一实例在失效前开始的计算只会写入无人读取的旧版本键，不会覆盖其他实例失效后的结果
+ */
+@Service
+public class StatisticsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(StatisticsCache.class);
+
+    private static final String MONTHLY = "monthly:";
+
+    private static final String PROJECT = "project:";
+
+    private static final String DATA = "data:";
+
+    private static final TypeReference<Map<String, Object>> RESULT_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 每次失效递增；计算开始后本实例发生过失效的结果不写入 L1，跨实例的 L2 由键版本保证
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${statistics-cache.max-size:1000}")
+    private long maxSize;
+
+    @Value("${statistics-cache.open-ttl-seconds:300}")
+    private long openTtlSeconds;
+
+    @Value("${statistics-cache.closed-ttl-seconds:604800}")
+    private long closedTtlSeconds;
+
+    @Value("${statistics-cache.closed-after-days:7}")
+    private int closedAfterDays;
+
+    @Value("${statistics-cache.primary-read-seconds:30}")
+    private long primaryReadSeconds;
+
+    @Value("${statistics-cache.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    @Value("${statistics-cache.redis.key-prefix:checkin:stats:}")
+    private String keyPrefix;
+
+    @Value("${statistics-cache.redis.channel:checkin:statistics-cache}")
+    private String channel;
+
+    private Cache<String, CachedResult> local;
+
+    /**
+     * 最近失效过的键，其重新计算读主库
+     */
+    private Cache<String, Boolean> recentlyInvalidated;
+
+    /**
+     * 最近一次整体失效的时间（System.nanoTime），之后 primary-read-seconds 内所有重新计算读主库
+     */
+    private volatile long invalidatedAllAt;
+
+    private Counter redisHits;
+
+    private Counter redisMisses;
+
+    private Counter redisErrors;
+
+    private SingleFlight<Map<String, Object>> loads;
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, CachedResult>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResult value, long currentTime) {
+                        return TimeUnit.SECONDS.toNanos(value.ttlSeconds);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResult value, long currentTime, long currentDuration) {
+                        return TimeUnit.SECONDS.toNanos(value.ttlSeconds);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResult value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "statistics");
+        recentlyInvalidated = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(primaryReadSeconds, TimeUnit.SECONDS)
+                .build();
+        invalidatedAllAt = System.nanoTime() - TimeUnit.SECONDS.toNanos(primaryReadSeconds);
+
+        redisHits = Counter.builder("statistics.cache.redis").tag("result", "hit").register(meterRegistry);
+        redisMisses = Counter.builder("statistics.cache.redis").tag("result", "miss").register(meterRegistry);
+        redisErrors = Counter.builder("statistics.cache.redis").tag("result", "error").register(meterRegistry);
+        loads = new SingleFlight<>("statistics-cache", meterRegistry);
+    }
+
+    public Map<String, Object> getMonthlySummary(int year, int month, Loader loader) {
+        YearMonth period = YearMonth.of(year, month);
+        return get(MONTHLY + period, isClosed(period) ? closedTtlSeconds : openTtlSeconds, loader);
+    }
+
+    /**
+     * 项目统计覆盖项目全部日期，不存在已结账的情况，使用较短 ttl
+     */
+    public Map<String, Object> getProjectStatistics(Long projectId, Loader loader) {
+        return get(PROJECT + projectId, openTtlSeconds, loader);
+    }
+
+    boolean isClosed(YearMonth period) {
+        return period.atEndOfMonth().plusDays(closedAfterDays).isBefore(LocalDate.now());
+    }
+
+    private Map<String, Object> get(String key, long ttlSeconds, Loader loader) {
+        CachedResult cached = local.getIfPresent(key);
+        if (cached != null) {
+            return cached.value;
+        }
+        // 同一键同时未命中时只有一个调用方读 Redis / 计算，其余等待其结果
+        return loads.execute(key, () -> load(key, ttlSeconds, loader));
+    }
+
+    private Map<String, Object> load(String key, long ttlSeconds, Loader loader) {
+        long generation = invalidations.get();
+        // 版本号必须在读库之前取得：计算期间任何实例发生失效都会递增版本，旧结果只会写到无人读取的旧版本键
+        String redisKey = currentRedisKey(key);
+        Map<String, Object> value = redisKey != null ? readRedis(redisKey) : null;
+        boolean fromRedis = value != null;
+        if (!fromRedis) {
+            value = Collections.unmodifiableMap(loader.load(requiresPrimary(key)));
+        }
+
+        if (invalidations.get() == generation) {
+            local.put(key, new CachedResult(value, ttlSeconds));
+        }
+        if (!fromRedis && redisKey != null) {
+            writeRedis(redisKey, value, ttlSeconds);
+        }
+        return value;
+    }
+
+    /**
+     * L2 数据键：前缀 + data: + 键 @ 全局纪元 . 键版本。整体失效递增纪元，单键失效递增该键版本；
+     * Redis 不可用时返回 null，本次既不读也不写 L2
+     */
+    private String currentRedisKey(String key) {
+        if (!redisEnabled) {
+            return null;
+        }
+        try {
+            List<String> versions = redisTemplate.opsForValue().multiGet(Arrays.asList(epochKey(), versionKey(key)));
+            String epoch = versions != null && versions.get(0) != null ? versions.get(0) : "0";
+            String version = versions != null && versions.get(1) != null ? versions.get(1) : "0";
+            return keyPrefix + DATA + key + "@" + epoch + "." + version;
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("读取统计缓存版本失败: {}", key, e);
+            return null;
+        }
+    }
+
+    private String epochKey() {
+        return keyPrefix + "epoch";
+    }
+
+    private String versionKey(String key) {
+        return keyPrefix + "version:" + key;
+    }
+
+    private boolean requiresPrimary(String key) {
+        return recentlyInvalidated.getIfPresent(key) != null
+                || System.nanoTime() - invalidatedAllAt < TimeUnit.SECONDS.toNanos(primaryReadSeconds);
+    }
+
+    private Map<String, Object> readRedis(String redisKey) {
+        try {
+            String json = redisTemplate.opsForValue().get(redisKey);
+            if (json == null) {
+                redisMisses.increment();
+                return null;
+            }
+            redisHits.increment();
+            return Collections.unmodifiableMap(objectMapper.readValue(json, RESULT_TYPE));
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.warn("读取统计缓存失败: {}", redisKey, e);
+            return null;
+        }
+    }
+
+    private void writeRedis(String redisKey, Map<String, Object> value, long ttlSeconds) {
+        try {
+            redisTemplate.opsForValue().set(redisKey, objectMapper.writeValueAsString(value),
+                    ttlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.warn("写入统计缓存失败: {}", redisKey, e);
+        }
+    }
+
+    /**
+     * 签退、审批通过、驳回会改变工时汇总；签到不影响统计结果
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(CheckInStatusEvent event) {
+        if (CheckInStatusEvent.CHECKED_IN.equals(event.getAction())) {
+            return;
+        }
+        CheckInRecord record = event.getRecord();
+        List<String> keys = new ArrayList<>(2);
+        if (record.getCheckInTime() != null) {
+            keys.add(MONTHLY + YearMonth.from(record.getCheckInTime()));
+        }
+        if (record.getProjectId() != null) {
+            keys.add(PROJECT + record.getProjectId());
+        }
+        invalidate(keys);
+    }
+
+    private void invalidate(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        evictLocal(keys);
+        if (!redisEnabled) {
+            return;
+        }
+        try {
+            // 递增版本后旧版本数据不再被读取，等待 ttl 过期
+            for (String key : keys) {
+                redisTemplate.opsForValue().increment(versionKey(key));
+            }
+            redisTemplate.convertAndSend(channel, nodeId + "|" + String.join(",", keys));
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("统计缓存失效失败: {}", keys, e);
+        }
+    }
+
+    /**
+     * 工时汇总重建后清空全部统计缓存
+     */
+    public void invalidateAll() {
+        evictAllLocal();
+        if (!redisEnabled) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().increment(epochKey());
+            List<String> redisKeys = redisTemplate.execute((RedisCallback<List<String>>) connection -> scanKeys(connection));
+            if (redisKeys != null && !redisKeys.isEmpty()) {
+                redisTemplate.delete(redisKeys);
+            }
+            redisTemplate.convertAndSend(channel, nodeId + "|*");
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("清空统计缓存失败", e);
+        }
+    }
+
+    private List<String> scanKeys(RedisConnection connection) {
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + DATA + "*").count(500).build();
+        try (Cursor<byte[]> cursor = connection.scan(options)) {
+            while (cursor.hasNext()) {
+                keys.add(new String(cursor.next(), StandardCharsets.UTF_8));
+            }
+        }
+        return keys;
+    }
+
+    private void evictLocal(List<String> keys) {
+        invalidations.incrementAndGet();
+        for (String key : keys) {
+            recentlyInvalidated.put(key, Boolean.TRUE);
+        }
+        local.invalidateAll(keys);
+    }
+
+    private void evictAllLocal() {
+        invalidations.incrementAndGet();
+        invalidatedAllAt = System.nanoTime();
+        local.invalidateAll();
+    }
+
+    /**
+     * 处理其他实例广播的失效消息，格式为 节点ID|键1,键2 或 节点ID|*，忽略本实例发出的消息
+     */
+    public void onRemoteInvalidation(String message) {
+        int separator = message.indexOf('|');
+        if (separator < 0 || nodeId.equals(message.substring(0, separator))) {
+            return;
+        }
+        String keys = message.substring(separator + 1);
+        if ("*".equals(keys)) {
+            evictAllLocal();
+        } else {
+            evictLocal(Arrays.asList(keys.split(",")));
+        }
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * 缓存未命中时计算统计结果；primary 为 true 表示该键刚失效，应在读写事务中读主库
+     */
+    public interface Loader {
+        Map<String, Object> load(boolean primary);
+    }
+
+    private static final class CachedResult {
+        private final Map<String, Object> value;
+        private final long ttlSeconds;
+
+        CachedResult(Map<String, Object> value, long ttlSeconds) {
+            this.value = value;
+            this.ttlSeconds = ttlSeconds;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.checkin.service;
+
+import com.checkin.entity.CheckInRecord;
+import com.checkin.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 团队实时状态推送（SSE）：连接时发送一次完整快照，之后只推送成员签到/签退/审批的增量事件，
+ * 空闲连接定期发送注释行心跳，避免被 nginx 等代理按读超时断开。
+ * 每个连接有独立的有界发送队列，由小线程池发送，单个卡住的客户端不会拖慢其他团队的推送
+ */
+@Service
+public class TeamStatusStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(TeamStatusStreamService.class);
+
+    @Autowired
+    private CheckInService checkInService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${team-status-stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${team-status-stream.heartbeat-interval-ms:15000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${team-status-stream.send-threads:4}")
+    private int sendThreads;
+
+    @Value("${team-status-stream.max-pending-events:100}")
+    private int maxPendingEvents;
+
+    @Value("${team-status-stream.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    private final Map<Long, Set<Subscriber>> subscribersByTeam = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private Counter droppedSubscribers;
+
+    /**
+     * 单线程调度：查询事件所属团队并把事件放入各连接的队列，以及定时心跳，不直接写网络
+     */
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "team-status-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 发送线程池：每个连接同一时刻最多占用一个线程按序发送，卡住的客户端只占住自己的线程，直到写超时失败
+     */
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void start() {
+        meterRegistry.gauge("checkin.team_status.subscribers", subscriberCount);
+        droppedSubscribers = Counter.builder("checkin.team_status.dropped")
+                .description("发送积压或超时被断开的团队状态连接数")
+                .register(meterRegistry);
+        AtomicInteger threadIndex = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "team-status-send-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::sendHeartbeats,
+                heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(Long teamId) {
+        if (teamId == null) {
+            throw new IllegalArgumentException("当前用户未加入团队");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribersByTeam.computeIfAbsent(teamId, k -> new CopyOnWriteArraySet<>()).add(subscriber);
+        subscriberCount.incrementAndGet();
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        subscriber.offer(SseEmitter.event()
+                .name("snapshot")
+                .data(checkInService.getTeamCurrentStatus(teamId), MediaType.APPLICATION_JSON));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChange(CheckInStatusEvent event) {
+        if (subscribersByTeam.isEmpty()) {
+            return;
+        }
+        dispatcher.execute(() -> dispatch(event));
+    }
+
+    private void dispatch(CheckInStatusEvent event) {
+        CheckInRecord record = event.getRecord();
+        User user = userService.getById(record.getUserId());
+        if (user == null || user.getTeamId() == null) {
+            return;
+        }
+        Set<Subscriber> subscribers = subscribersByTeam.get(user.getTeamId());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("userId", record.getUserId());
+        payload.put("type", record.getType());
+        payload.put("action", event.getAction());
+        payload.put("record", record);
+        payload.put("checkedIn", "checked_in".equals(record.getStatus()));
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(SseEmitter.event()
+                    .name("status")
+                    .data(payload, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void sendHeartbeats() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> subscribers : subscribersByTeam.values()) {
+            for (Subscriber subscriber : subscribers) {
+                long startedAt = subscriber.sendStartedAt;
+                if (startedAt != 0 && now - startedAt > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)) {
+                    subscriber.drop("发送超时");
+                } else if (subscriber.pending.isEmpty()) {
+                    // 队列中已有事件时无需心跳
+                    subscriber.offer(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        for (Set<Subscriber> subscribers : subscribersByTeam.values()) {
+            if (subscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 单个 SSE 连接：事件先进入有界队列，再由发送线程池按序写出；队列积压或单次发送超时即断开该连接，客户端自行重连
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pending;
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        /**
+         * 当前发送开始时间（nanoTime），空闲时为 0
+         */
+        private volatile long sendStartedAt;
+
+        private volatile boolean closed;
+
+        /**
+         * 被判定为慢客户端，由发送线程在当前发送结束后完成连接（SseEmitter 的 send 与 complete 互斥，调度线程不能等待）
+         */
+        private volatile boolean dropped;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.pending = new ArrayBlockingQueue<>(maxPendingEvents);
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!pending.offer(event)) {
+                drop("待发送事件积压");
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // 服务关闭中
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = pending.poll()) != null) {
+                    sendStartedAt = System.nanoTime();
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // 客户端已断开
+                        log.debug("团队状态推送失败: {}", e.getMessage());
+                        close();
+                        emitter.completeWithError(e);
+                        return;
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+                if (dropped && completed.compareAndSet(false, true)) {
+                    emitter.complete();
+                }
+            } finally {
+                draining.set(false);
+                if ((dropped && !completed.get()) || (!closed && !pending.isEmpty())) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        /**
+         * 慢客户端：断开连接并丢弃积压事件，避免占用内存和发送线程
+         */
+        void drop(String reason) {
+            if (closed) {
+                return;
+            }
+            log.info("断开团队状态慢客户端: {}", reason);
+            droppedSubscribers.increment();
+            dropped = true;
+            close();
+            scheduleDrain();
+        }
+
+        void close() {
+            closed = true;
+            pending.clear();
+            remove(this);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        for (Set<Subscriber> subscribers : subscribersByTeam.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.checkin.service;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.checkin.entity.User;
 import com.checkin.mapper.UserMapper;
@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.io.Serializable;
 import java.util.List;
 
 @Service
@@ -20,12 +21,54 @@ public class UserService extends ServiceImpl<UserMapper, User> {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    /**
+     * 按ID查询走基础数据缓存，返回副本
+     */
+    @Override
+    public User getById(Serializable id) {
+        return referenceDataCache.getUser(id != null ? Long.valueOf(id.toString()) : null);
+    }
+
+    @Override
+    public boolean save(User entity) {
+        boolean saved = super.save(entity);
+        referenceDataCache.invalidateUser(entity.getId());
+        return saved;
+    }
+
+    @Override
+    public boolean updateById(User entity) {
+        boolean updated = super.updateById(entity);
+        referenceDataCache.invalidateUser(entity.getId());
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        referenceDataCache.invalidateUser(Long.valueOf(id.toString()));
+        return removed;
+    }
+
+    /**
+     * 走基础数据缓存，可能滞后于数据库，只用于展示和查找
+     */
     public User findByUsername(String username) {
-        return getOne(new QueryWrapper<User>().eq("username", username));
+        return referenceDataCache.findUserByUsername(username);
+    }
+
+    /**
+     * 登录、注册直接查库：改密码、禁用账号或新注册后立即生效，不受缓存过期时间影响
+     */
+    private User loadByUsername(String username) {
+        return getOne(new LambdaQueryWrapper<User>().eq(User::getUsername, username), false);
     }
 
     public String login(String username, String password) {
-        User user = findByUsername(username);
+        User user = loadByUsername(username);
         if (user == null || !passwordEncoder.matches(password, user.getPassword())) {
             throw new RuntimeException("用户名或密码错误");
         }
@@ -34,7 +77,7 @@ public class UserService extends ServiceImpl<UserMapper, User> {
     }
 
     public User register(User user) {
-        if (findByUsername(user.getUsername()) != null) {
+        if (loadByUsername(user.getUsername()) != null) {
             throw new RuntimeException("用户名已存在");
         }
         
@@ -53,9 +96,6 @@ public class UserService extends ServiceImpl<UserMapper, User> {
     }
 
     public List<User> getTeamMembers(Long teamId) {
-        if (teamId == null) {
-            return list(new QueryWrapper<User>().isNull("team_id"));
-        }
-        return list(new QueryWrapper<User>().eq("team_id", teamId).ne("role", "队长"));
+        return referenceDataCache.getTeamMembers(teamId);
     }
 }
\ No newline at end of file
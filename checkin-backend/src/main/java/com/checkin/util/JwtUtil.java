@@ -1,16 +1,26 @@
 package com.checkin.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
@@ -21,8 +31,79 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Value("${jwt.claims-cache-size:10000}")
+    private int claimsCacheSize;
+
+    private SecretKey signingKey;
+
+    private JwtParser jwtParser;
+
+    /**
+     * 已验签的令牌声明缓存，键为令牌的SHA-256摘要；容量有上限，条目在令牌过期时失效
+     */
+    private Cache<String, TokenClaims> verifiedClaims;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new Expiry<String, TokenClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, TokenClaims value, long currentTime) {
+                        long remainingMillis = Math.min(value.getExpiration() - System.currentTimeMillis(), expiration);
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, TokenClaims value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, TokenClaims value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
+    }
+
+    /**
+     * 验签并解析令牌，同一令牌在有效期内只验签一次
+     *
+     * @throws io.jsonwebtoken.JwtException 令牌无效或已过期
+     */
+    public TokenClaims parseToken(String token) {
+        String key = digest(token);
+        TokenClaims cached = verifiedClaims.getIfPresent(key);
+        if (cached != null && cached.getExpiration() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        Claims claims = getAllClaimsFromToken(token);
+        TokenClaims tokenClaims = new TokenClaims(
+                claims.getSubject(),
+                Long.valueOf(claims.get("userId").toString()),
+                claims.get("role").toString(),
+                claims.getExpiration().getTime());
+        verifiedClaims.put(key, tokenClaims);
+        return tokenClaims;
+    }
+
+    private String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public String generateToken(String username, Long userId, String role) {
@@ -71,9 +152,7 @@ public class JwtUtil {
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
@@ -82,4 +161,23 @@ public class JwtUtil {
         final Date expiration = getExpirationDateFromToken(token);
         return expiration.before(new Date());
     }
-}
\ No newline at end of file
+
+    public static class TokenClaims {
+        private final String username;
+        private final Long userId;
+        private final String role;
+        private final long expiration;
+
+        public TokenClaims(String username, Long userId, String role, long expiration) {
+            this.username = username;
+            this.userId = userId;
+            this.role = role;
+            this.expiration = expiration;
+        }
+
+        public String getUsername() { return username; }
+        public Long getUserId() { return userId; }
+        public String getRole() { return role; }
+        public long getExpiration() { return expiration; }
+    }
+}
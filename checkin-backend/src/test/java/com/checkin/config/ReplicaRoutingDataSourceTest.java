@@ -0,0 +1,153 @@
+package com.checkin.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 主库、从库分别为两个独立的 H2 内存库，各写入一行不同的标记，通过查询结果判断语句实际落在哪个库
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(ReplicaDataSourceConfig.class, RoutingTestConfig.class)
+            .withPropertyValues(
+                    "replica-datasource.enabled=true",
+                    "spring.datasource.url=jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1",
+                    "spring.datasource.driver-class-name=org.h2.Driver",
+                    "spring.datasource.username=sa",
+                    "spring.datasource.password=",
+                    "replica-datasource.url=jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1;INIT="
+                            + "CREATE TABLE IF NOT EXISTS marker(source VARCHAR(16))\\;"
+                            + "CREATE TABLE IF NOT EXISTS replica_status(lag BIGINT)",
+                    "replica-datasource.lag-query=SELECT lag AS Seconds_Behind_Master FROM replica_status",
+                    "replica-datasource.max-lag-seconds=10",
+                    "replica-datasource.lag-check-interval-ms=3600000");
+
+    @Test
+    void readOnlyTransactionsReadFromReplica() {
+        contextRunner.run(context -> {
+            seed(context.getBean("primaryDataSource", DataSource.class), 0);
+            context.getBean(ReplicaRoutingDataSource.class).checkReplicaLag();
+            MarkerService service = context.getBean(MarkerService.class);
+
+            assertThat(service.readOnly()).isEqualTo("replica");
+        });
+    }
+
+    @Test
+    void writesAndNonTransactionalReadsUsePrimary() {
+        contextRunner.run(context -> {
+            seed(context.getBean("primaryDataSource", DataSource.class), 0);
+            context.getBean(ReplicaRoutingDataSource.class).checkReplicaLag();
+            MarkerService service = context.getBean(MarkerService.class);
+
+            assertThat(service.readWrite()).isEqualTo("primary");
+            assertThat(service.withoutTransaction()).isEqualTo("primary");
+
+            service.write("written");
+            assertThat(new JdbcTemplate(context.getBean("primaryDataSource", DataSource.class))
+                    .queryForObject("SELECT COUNT(*) FROM marker WHERE source = 'written'", Integer.class)).isEqualTo(1);
+            assertThat(new JdbcTemplate(context.getBean("replicaDataSource", DataSource.class))
+                    .queryForObject("SELECT COUNT(*) FROM marker WHERE source = 'written'", Integer.class)).isZero();
+        });
+    }
+
+    @Test
+    void replicaLagOverThresholdRoutesReadsToPrimary() {
+        contextRunner.run(context -> {
+            seed(context.getBean("primaryDataSource", DataSource.class), 30);
+            ReplicaRoutingDataSource routing = context.getBean(ReplicaRoutingDataSource.class);
+            routing.checkReplicaLag();
+            MarkerService service = context.getBean(MarkerService.class);
+
+            assertThat(routing.isReplicaAvailable()).isFalse();
+            assertThat(routing.getLagSeconds()).isEqualTo(30);
+            assertThat(service.readOnly()).isEqualTo("primary");
+        });
+    }
+
+    /**
+     * 两个库各保留一行标记；从库额外保存模拟的复制延迟，供 lag-query 读取
+     */
+    private static void seed(DataSource primary, long lagSeconds) {
+        JdbcTemplate primaryJdbc = new JdbcTemplate(primary);
+        primaryJdbc.execute("CREATE TABLE IF NOT EXISTS marker(source VARCHAR(16))");
+        primaryJdbc.execute("DELETE FROM marker");
+        primaryJdbc.update("INSERT INTO marker VALUES ('primary')");
+
+        // 从库连接池为只读，数据通过独立连接写入
+        JdbcTemplate replicaJdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1", "sa", ""));
+        replicaJdbc.execute("DELETE FROM marker");
+        replicaJdbc.update("INSERT INTO marker VALUES ('replica')");
+        replicaJdbc.execute("DELETE FROM replica_status");
+        replicaJdbc.update("INSERT INTO replica_status VALUES (?)", lagSeconds);
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @EnableConfigurationProperties(DataSourceProperties.class)
+    static class RoutingTestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        MarkerService markerService(DataSource dataSource) {
+            return new MarkerService(new JdbcTemplate(dataSource));
+        }
+    }
+
+    static class MarkerService {
+
+        private static final String READ = "SELECT source FROM marker WHERE source IN ('primary', 'replica')";
+
+        private final JdbcTemplate jdbcTemplate;
+
+        MarkerService(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Transactional(readOnly = true)
+        public String readOnly() {
+            return jdbcTemplate.queryForObject(READ, String.class);
+        }
+
+        @Transactional
+        public String readWrite() {
+            return jdbcTemplate.queryForObject(READ, String.class);
+        }
+
+        public String withoutTransaction() {
+            return jdbcTemplate.queryForObject(READ, String.class);
+        }
+
+        @Transactional
+        public void write(String source) {
+            jdbcTemplate.update("INSERT INTO marker VALUES (?)", source);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.checkin.mapper;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.checkin.common.CursorPage;
+import com.checkin.common.FieldSelection;
+import com.checkin.entity.CheckInRecord;
+import com.checkin.service.ApprovalService;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 在 H2（MySQL 模式）中加载 database/schema.sql，检查 checkin_record 热点查询的执行计划使用了对应的组合索引，
+ * 防止改写查询或调整表结构时索引悄悄失效
+ */
+class CheckInRecordIndexTest {
+
+    private static Connection connection;
+
+    /**
+     * 注册 CheckInRecordMapper（含 MyBatis-Plus 注入的 selectList 等方法），用于生成与运行时一致的 SQL
+     */
+    private static MybatisConfiguration configuration;
+
+    @BeforeAll
+    static void createSchema() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:index_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE", "sa", "");
+        // 去掉 H2 不支持的 MySQL 语法：建库/切库语句、VIRTUAL 生成列修饰和表选项
+        String schema = Files.readAllLines(Paths.get("database", "schema.sql"), StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.startsWith("CREATE DATABASE") && !line.startsWith("USE "))
+                .map(line -> line.replace(" VIRTUAL COMMENT", " COMMENT").replaceAll("\\) ENGINE=InnoDB[^;]*;", ");"))
+                .collect(Collectors.joining("\n"));
+        ScriptUtils.executeSqlScript(connection, new EncodedResource(
+                new ByteArrayResource(schema.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8));
+
+        try (Statement statement = connection.createStatement()) {
+            // 实体映射了 project_name 而 schema.sql 未定义，补上该列以便执行 MyBatis-Plus 生成的完整列查询
+            statement.execute("ALTER TABLE checkin_record ADD COLUMN project_name varchar(255)");
+            for (int i = 1; i <= 200; i++) {
+                statement.execute("INSERT INTO checkin_record (user_id, user_name, type, check_in_time, status, approved, rejected, project_id, deleted) "
+                        + "VALUES (" + (i % 20) + ", 'u', 'construction', TIMESTAMP '2024-01-01 08:00:00' + INTERVAL '" + i + "' DAY, "
+                        + "'checked_out', " + (i % 3 == 0) + ", FALSE, " + (i % 5) + ", 0)");
+            }
+            statement.execute("ANALYZE");
+        }
+
+        configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(CheckInRecordMapper.class);
+    }
+
+    @AfterAll
+    static void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void lastCheckInByTypeUsesUserTypeTimeIndex() throws Exception {
+        String sql = mapperSql("findLastCheckInByType", Long.class, String.class, LocalDateTime.class, LocalDateTime.class)
+                .replace("#{userId}", "1")
+                .replace("#{type}", "'construction'")
+                .replace("#{dayStart}", "TIMESTAMP '2024-03-01 00:00:00'")
+                .replace("#{dayEnd}", "TIMESTAMP '2024-03-02 00:00:00'");
+
+        assertThat(explain(sql)).contains("idx_checkin_user_type_time");
+    }
+
+    @Test
+    void pendingApprovalsUseApprovalStateIndex() throws Exception {
+        assertThat(explain(mapperSql("findPendingApprovals"))).contains("idx_checkin_approval_state");
+    }
+
+    @Test
+    void pendingApprovalsWrapperQueryUsesApprovalStateIndex() throws Exception {
+        FieldSelection<CheckInRecord> fields = FieldSelection.parse(CheckInRecord.class, "id,userName");
+
+        assertThat(explainSelectList(ApprovalService.buildPendingSelectQuery(fields))).contains("idx_checkin_approval_state");
+    }
+
+    @Test
+    void projectRecordsUseProjectApprovedIndex() throws Exception {
+        // src/main 中没有按 project_id 查询签到记录的代码，该索引只服务临时查询和报表；这里按 MyBatis-Plus 生成的 SQL 检查
+        LambdaQueryWrapper<CheckInRecord> query = new LambdaQueryWrapper<CheckInRecord>()
+                .eq(CheckInRecord::getProjectId, 3L)
+                .eq(CheckInRecord::getApproved, true);
+
+        assertThat(explainSelectList(query)).contains("idx_checkin_project_approved");
+    }
+
+    @Test
+    void pendingApprovalPageUsesApprovalStateIndexForOrdering() throws Exception {
+        CursorPage.Cursor position = new CursorPage.Cursor(LocalDateTime.of(2024, 3, 1, 8, 0), 60L);
+        String plan = explainSelectList(ApprovalService.buildPendingPageQuery(null, position, 21));
+
+        assertThat(plan).contains("idx_checkin_approval_state");
+        // 等值列之后紧跟排序列，MySQL 按索引顺序读取，无需 filesort
+        assertThat(indexColumns("idx_checkin_approval_state"))
+                .containsExactly("approved", "rejected", "deleted", "check_in_time", "id");
+    }
+
+    private static String mapperSql(String method, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return CheckInRecordMapper.class.getMethod(method, parameterTypes).getAnnotation(Select.class).value()[0];
+    }
+
+    /**
+     * 按 BaseMapper.selectList 的真实语句展开 wrapper（含逻辑删除条件），绑定参数后取执行计划
+     */
+    private static String explainSelectList(Wrapper<CheckInRecord> wrapper) throws SQLException {
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put(Constants.WRAPPER, wrapper);
+        MappedStatement statement = configuration.getMappedStatement(CheckInRecordMapper.class.getName() + ".selectList");
+        BoundSql boundSql = statement.getBoundSql(parameter);
+        try (PreparedStatement prepared = connection.prepareStatement("EXPLAIN " + boundSql.getSql())) {
+            new DefaultParameterHandler(statement, parameter, boundSql).setParameters(prepared);
+            try (ResultSet resultSet = prepared.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1).toLowerCase();
+            }
+        }
+    }
+
+    private static List<String> indexColumns(String indexName) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement prepared = connection.prepareStatement(
+                "SELECT column_name FROM information_schema.index_columns WHERE index_name = ? ORDER BY ordinal_position")) {
+            prepared.setString(1, indexName);
+            try (ResultSet resultSet = prepared.executeQuery()) {
+                while (resultSet.next()) {
+                    columns.add(resultSet.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static String explain(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            resultSet.next();
+            return resultSet.getString(1).toLowerCase();
+        }
+    }
+}